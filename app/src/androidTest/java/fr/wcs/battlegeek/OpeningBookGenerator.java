@@ -0,0 +1,173 @@
+package fr.wcs.battlegeek;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import fr.wcs.battlegeek.controller.DensityMap;
+import fr.wcs.battlegeek.controller.GameController;
+import fr.wcs.battlegeek.controller.OpeningBook;
+import fr.wcs.battlegeek.controller.ZobristHash;
+import fr.wcs.battlegeek.model.Maps;
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Offline Generator of the Opening Book (res/raw/opening_book.bin)
+ *
+ * Simulates the AI's first shots against each Map of the pool (the predefined Maps and the
+ * community ones), and stores the best shot of each knowledge state met. The best shot is the
+ * cell the most often touched in the pool's Maps consistent with the state, smoothed by the
+ * uniform probability density so the book does not learn the pool by heart.
+ *
+ * Run it on a device, then pull the book:
+ * adb pull /data/data/fr.wcs.battlegeek/files/opening_book.bin app/src/main/res/raw/
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpeningBookGenerator {
+
+    private static final String TAG = "TEST";
+
+    // Count of shots covered by the book
+    public static final int DEPTH = 6;
+
+    // Weight of the density, in Maps
+    private static final float DENSITY_WEIGHT = 8;
+
+    // Result of a cell not played yet
+    private static final int NOT_PLAYED = -2;
+
+    @Test
+    public void generate() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Maps.init();
+        // Wait for the community Maps
+        int count;
+        do {
+            count = Maps.maps.size();
+            Thread.sleep(3000);
+        } while (count != Maps.maps.size());
+
+        File file = new File(context.getFilesDir(), "opening_book.bin");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            generate(Maps.maps, DEPTH, outputStream);
+        } finally {
+            outputStream.close();
+        }
+        Log.d(TAG, "generate: Opening Book of " + count + " Maps written in " + file.getAbsolutePath());
+    }
+
+    /**
+     * Method simulating the first shots against the Maps and writing the Opening Book
+     * @param maps the Maps' pool
+     * @param depth the count of shots covered by the book
+     * @param outputStream
+     * @throws IOException
+     */
+    public static void generate(List<char[][]> maps, int depth, OutputStream outputStream) throws IOException {
+        // Shape (index, NONE for empty) of each cell of each Map
+        int[][] mapsShapes = new int[maps.size()][BitBoard.CELLS];
+        for (int m = 0; m < maps.size(); m++) {
+            GameController controller = new GameController(maps.get(m));
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                mapsShapes[m][cell] = controller.getShape(cell);
+            }
+        }
+
+        HashMap<Long, Integer> book = new HashMap<>();
+        for (int m = 0; m < maps.size(); m++) {
+            GameController target = new GameController(copy(maps.get(m)));
+            DensityMap densityMap = new DensityMap();
+            ZobristHash hash = new ZobristHash();
+            int[] results = new int[BitBoard.CELLS];
+            Arrays.fill(results, NOT_PLAYED);
+            for (int shot = 0; shot < depth; shot++) {
+                Integer cell = book.get(hash.getHash());
+                if (cell == null) {
+                    cell = getBestCell(mapsShapes, results, densityMap);
+                    book.put(hash.getHash(), cell);
+                }
+                Result result = target.shot(BitBoard.getX(cell), BitBoard.getY(cell));
+                results[cell] = result.getShape();
+                densityMap.update(result);
+                hash.update(result);
+            }
+        }
+
+        // Sorted by hash
+        ArrayList<Long> keys = new ArrayList<>(book.keySet());
+        Collections.sort(keys);
+        long[] hashes = new long[keys.size()];
+        byte[] cells = new byte[keys.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = keys.get(i);
+            cells[i] = (byte) (int) book.get(keys.get(i));
+        }
+        OpeningBook.write(outputStream, hashes, cells, depth);
+    }
+
+    /**
+     * Method returning the best shot of the state
+     * @param mapsShapes the Shapes of the Maps' cells
+     * @param results the Shape found on each played cell, NOT_PLAYED if not played
+     * @param densityMap the state's probability density
+     * @return
+     */
+    private static int getBestCell(int[][] mapsShapes, int[] results, DensityMap densityMap) {
+        int[] hits = new int[BitBoard.CELLS];
+        int consistent = 0;
+        for (int[] mapShapes : mapsShapes) {
+            boolean valid = true;
+            for (int cell = 0; cell < BitBoard.CELLS && valid; cell++) {
+                valid = results[cell] == NOT_PLAYED || results[cell] == mapShapes[cell];
+            }
+            if (!valid) {
+                continue;
+            }
+            consistent++;
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                if (mapShapes[cell] != NONE) {
+                    hits[cell]++;
+                }
+            }
+        }
+        int best = -1;
+        float bestScore = -1;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (results[cell] != NOT_PLAYED) {
+                continue;
+            }
+            float score = (hits[cell] + DENSITY_WEIGHT * densityMap.getDensity(cell)) / (consistent + DENSITY_WEIGHT);
+            if (score > bestScore) {
+                bestScore = score;
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    private static char[][] copy(char[][] map) {
+        char[][] copy = new char[map.length][];
+        for (int i = 0; i < map.length; i++) {
+            copy[i] = map[i].clone();
+        }
+        return copy;
+    }
+}
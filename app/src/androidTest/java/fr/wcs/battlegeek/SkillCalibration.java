@@ -0,0 +1,160 @@
+package fr.wcs.battlegeek;
+
+import android.graphics.Point;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.wcs.battlegeek.controller.AI;
+import fr.wcs.battlegeek.controller.GameController;
+import fr.wcs.battlegeek.controller.OpeningBook;
+import fr.wcs.battlegeek.controller.SkillTable;
+import fr.wcs.battlegeek.model.Bonus;
+import fr.wcs.battlegeek.model.Maps;
+import fr.wcs.battlegeek.model.Result;
+
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Offline Calibration of the AI Levels' skills (see SkillTable)
+ *
+ * For each Level with a target, plays the AI against the predefined Maps (with their Bonus) for
+ * a grid of skills, and logs the curve of the mean count of shots (decreasing with the skill).
+ * The games are spread over all the cores: run it on a fast emulator, then copy the logged
+ * table in SkillTable.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SkillCalibration {
+
+    private static final String TAG = "TEST";
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    // Skills evaluated between 0 and 1, and games played for each
+    public static final int POINTS = SkillTable.POINTS;
+    public static final int GAMES = 5000;
+
+    // Shots before giving up a game (should not happen)
+    private static final int MAX_SHOTS = 200;
+
+    @Test
+    public void calibrate() throws Exception {
+        Maps.initPredefined();
+        OpeningBook.load(InstrumentationRegistry.getTargetContext());
+        StringBuilder table = new StringBuilder();
+        for (AI.Level level : AI.Level.values()) {
+            table.append(table.length() == 0 ? "" : ",\n");
+            if (SkillTable.TARGETS[level.ordinal()] == 0) {
+                table.append("null");
+                continue;
+            }
+            float[] curve = getCurve(level, POINTS, GAMES);
+            table.append('{');
+            for (int i = 0; i < curve.length; i++) {
+                table.append(i == 0 ? "" : ", ").append(String.format(Locale.US, "%.2ff", curve[i]));
+            }
+            table.append('}');
+        }
+        Log.d(TAG, "calibrate: private static final float[][] CURVES = {\n" + table + "\n};");
+    }
+
+    /**
+     * Method computing the curve of the Level's mean count of shots
+     * @param level
+     * @param points the count of skills evaluated, between 0 and 1
+     * @param games the count of games for each skill
+     * @return the mean count of shots for each skill
+     * @throws Exception
+     */
+    public static float[] getCurve(AI.Level level, int points, int games) throws Exception {
+        float[] means = new float[points];
+        for (int i = 0; i < points; i++) {
+            means[i] = getMeanShots(level, (float) i / (points - 1), games);
+            Log.d(TAG, "getCurve: " + level + " skill " + (float) i / (points - 1) + " mean " + means[i]);
+        }
+        return means;
+    }
+
+    /**
+     * Method returning the mean count of shots of the Level with the skill
+     * @param level
+     * @param skill
+     * @param games
+     * @return
+     * @throws Exception
+     */
+    public static float getMeanShots(final AI.Level level, final float skill, int games) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        ArrayList<Future<Long>> futures = new ArrayList<>();
+        final int mapsCount = Maps.maps.size();
+        for (int thread = 0; thread < THREADS; thread++) {
+            final int first = thread * games / THREADS;
+            final int last = (thread + 1) * games / THREADS;
+            futures.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    long shots = 0;
+                    for (int game = first; game < last; game++) {
+                        shots += play(level, skill, Maps.getMap(game % mapsCount));
+                    }
+                    return shots;
+                }
+            }));
+        }
+        long shots = 0;
+        try {
+            for (Future<Long> future : futures) {
+                shots += future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return (float) shots / games;
+    }
+
+    /**
+     * Method playing a game of the AI against the Map
+     * @param level
+     * @param skill
+     * @param map the Player's Map
+     * @return the AI's count of shots (a Cross Fire is one shot)
+     */
+    private static int play(AI.Level level, float skill, char[][] map) {
+        GameController gameController = new GameController(map);
+        gameController.setBonus();
+        AI ai = new AI();
+        ai.setPlayerMap(gameController.getMap());
+        ai.setLevel(level);
+        ai.setSkill(skill);
+        Result result = new Result(0, 0, NONE, Result.Type.MISSED, null);
+        int shots = 0;
+        while (result.getType() != Result.Type.VICTORY && shots < MAX_SHOTS) {
+            Point point = ai.play();
+            shots++;
+            if (ai.getSelectedBonus() == Bonus.Type.BOMB) {
+                for (Point cell : ai.getGameController().getSurrondingcoordinates(point)) {
+                    result = gameController.shot(cell.x, cell.y);
+                    ai.setResult(result);
+                    if (result.getType() == Result.Type.VICTORY) {
+                        break;
+                    }
+                }
+            }
+            else {
+                result = gameController.shot(point.x, point.y);
+                ai.setResult(result);
+            }
+        }
+        return shots;
+    }
+}
@@ -11,20 +11,40 @@ import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
 
 import fr.wcs.battlegeek.controller.AI;
+import fr.wcs.battlegeek.controller.DensityMap;
+import fr.wcs.battlegeek.controller.EndgameSolver;
+import fr.wcs.battlegeek.controller.FleetSampler;
 import fr.wcs.battlegeek.controller.GameController;
+import fr.wcs.battlegeek.controller.LayoutEnumerator;
+import fr.wcs.battlegeek.controller.LayoutOptimizer;
+import fr.wcs.battlegeek.controller.Lookahead;
+import fr.wcs.battlegeek.controller.MovePlanner;
+import fr.wcs.battlegeek.controller.PlacementAtlas;
+import fr.wcs.battlegeek.controller.SkillTable;
+import fr.wcs.battlegeek.controller.StrategyRegistry;
+import fr.wcs.battlegeek.controller.ZobristHash;
 import fr.wcs.battlegeek.model.Maps;
 import fr.wcs.battlegeek.model.PlayerModel;
 import fr.wcs.battlegeek.model.Result;
 import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+import fr.wcs.battlegeek.utils.BitBoard;
+import fr.wcs.battlegeek.utils.CellSet;
+import fr.wcs.battlegeek.utils.Deadline;
 import fr.wcs.battlegeek.utils.Utils;
 
 import static fr.wcs.battlegeek.controller.AI.Level.I;
 import static fr.wcs.battlegeek.model.Result.Type.DROWN;
+import static fr.wcs.battlegeek.model.Result.Type.TOUCHED;
 import static fr.wcs.battlegeek.model.Result.Type.VICTORY;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.NONE;
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Instrumentation test, which will execute on an Android device.
@@ -105,6 +125,35 @@ public class Tests {
         }
     }
 
+    @Test
+    public void AILevelExpert() throws Exception {
+        Maps.init();
+        for (int t = 0; t < NUM_TESTS; t++) {
+            for (int i = 0; i < Maps.maps.size(); i++) {
+                Log.d(TAG, "Game n° " + (t * Maps.maps.size()+ i));
+                Log.d(TAG, "AILevelExpert: Using Map " + String.valueOf(i + 1));
+                AI ai = new AI();
+                char[][] map = Maps.getMap(i);
+                ai.setLevel(AI.Level.EXPERT);
+                GameController gameController = new GameController(map);
+                Result result = new Result(0, 0, NONE, Result.Type.MISSED, null);
+                int drownCount = 0;
+                int shootCount = 0;
+                while (result.getType() != VICTORY) {
+                    Point p = ai.play();
+                    shootCount++;
+                    result = gameController.shot(p.x, p.y);
+                    ai.setResult(result);
+                    if (result.getType() == DROWN || result.getType() == VICTORY) {
+                        drownCount++;
+                    }
+                }
+                Log.d(TAG, "AILevelExpert: Total Shoot Count: " + shootCount);
+                assertEquals(7, drownCount);
+            }
+        }
+    }
+
     @Test
     public void AILevelImpossible() throws Exception {
         Maps.init();
@@ -133,6 +182,63 @@ public class Tests {
         }
     }
 
+    @Test
+    public void testMixedFleet() throws Exception {
+        // Pentominoes, a Tetromino and a domino: every Level plays the Fleet to the end
+        ShapeCatalog catalog = new ShapeCatalog("F:.XX/XX./.X.", "P:XX/XX/X.", "X:.X./XXX/.X.",
+                "I:XXXXX", "T:XXX/.X.", "D:XX");
+        ShapeCatalog.setFleet(catalog);
+        try {
+            PlacementAtlas atlas = PlacementAtlas.getInstance();
+            assertEquals(catalog, atlas.getCatalog());
+            DensityMap densityMap = new DensityMap();
+            float densities = 0;
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                densities += densityMap.getDensity(cell);
+            }
+            assertEquals(catalog.getFleetSize(), densities, 1e-2f);
+
+            for (AI.Level level : AI.Level.values()) {
+                for (int i = 0; i < 3; i++) {
+                    char[][] map = Maps.getMap();
+                    Utils.printMap(map);
+                    assertTrue(Maps.isValidMap(map));
+                    AI ai = new AI();
+                    ai.setPlayerMap(map);
+                    ai.setLevel(level);
+                    GameController gameController = new GameController(map);
+                    assertEquals(catalog.getFleetSize(), gameController.getFleetMask().count());
+                    Result result = new Result(0, 0, NONE, Result.Type.MISSED, null);
+                    int drownCount = 0;
+                    int shootCount = 0;
+                    while (result.getType() != VICTORY && shootCount < BitBoard.CELLS) {
+                        ai.moveShape();
+                        Point p = ai.play();
+                        shootCount++;
+                        result = gameController.shot(p.x, p.y);
+                        ai.setResult(result);
+                        if (result.getType() == DROWN || result.getType() == VICTORY) {
+                            BitBoard shapeMask = gameController.getShapeMask(result.getShape());
+                            assertEquals(catalog.getSize(result.getShape()), shapeMask.count());
+                            assertTrue(gameController.getShotMask().contains(shapeMask));
+                            drownCount++;
+                        }
+                    }
+                    Log.d(TAG, "testMixedFleet: " + level + " Total Shoot Count: " + shootCount);
+                    assertEquals(VICTORY, result.getType());
+                    assertEquals(catalog.getShapesCount(), drownCount);
+                    if (level == AI.Level.IMPOSSIBLE) {
+                        assertEquals(catalog.getFleetSize(), shootCount);
+                    }
+                }
+            }
+        }
+        finally {
+            ShapeCatalog.setFleet(null);
+        }
+        assertEquals(ShapeCatalog.getDefault(), PlacementAtlas.getInstance().getCatalog());
+    }
+
     @Test
     public void testMaps() throws Exception {
         Maps.init();
@@ -154,11 +260,471 @@ public class Tests {
                     break;
                 }
             }
+            // Exactly one legal placement of each Tetromino
+            if(!Maps.isValidMap(map)) {
+                Log.d(TAG, "testMaps: Invalid Layout: " + i);
+                valid = false;
+            }
         }
 
         assertEquals(true, valid);
     }
 
+    @Test
+    public void testPlacementAtlas() throws Exception {
+        PlacementAtlas atlas = PlacementAtlas.getInstance();
+        assertEquals(1373, atlas.getPlacementsCount());
+        Maps.init();
+        for (int i = 0; i < Maps.maps.size(); i++) {
+            GameController gameController = new GameController(Maps.getMap(i));
+            // Each Tetromino of the Map must be a legal placement
+            for (int shape = 0; shape < atlas.getShapesCount(); shape++) {
+                int placement = atlas.find(shape, gameController.getShapeMask(shape));
+                Log.d(TAG, "testPlacementAtlas: Map " + i + " " + atlas.getCatalog().getSymbol(shape) + " : " + placement);
+                assertNotEquals(-1, placement);
+            }
+        }
+    }
+
+    @Test
+    public void testShapeCatalog() throws Exception {
+        // The Tetrominos' orientations are generated from one of them
+        ShapeCatalog tetrominos = ShapeCatalog.getDefault();
+        int[] rotations = new int[] {2, 1, 4, 4, 4, 2, 2};
+        assertEquals(7, tetrominos.getShapesCount());
+        for (int shape = 0; shape < tetrominos.getShapesCount(); shape++) {
+            assertEquals("IOTJLSZ".charAt(shape), tetrominos.getSymbol(shape));
+            assertEquals(shape, tetrominos.indexOf(tetrominos.getSymbol(shape)));
+            assertEquals(rotations[shape], tetrominos.getRotations(shape).size());
+            assertEquals(4, tetrominos.getSize(shape));
+        }
+        assertEquals(28, tetrominos.getFleetSize());
+        assertEquals(2, tetrominos.indexOf('t'));
+        assertEquals(NONE, tetrominos.indexOf('_'));
+
+        // Mixed sizes: pentominoes X and F, and a domino
+        ShapeCatalog catalog = new ShapeCatalog("X:.X./XXX/.X.", "F:.XX/XX./.X.", "D:XX");
+        assertEquals(1, catalog.indexOf('f'));
+        assertEquals(-1, catalog.indexOf('Q'));
+        // Not a Tetromino
+        assertEquals(NONE, tetrominos.indexOf('D'));
+        assertEquals(12, catalog.getFleetSize());
+        PlacementAtlas atlas = new PlacementAtlas(catalog);
+        int[] sizes = new int[] {5, 5, 2};
+        int[] placements = new int[] {8 * 8, 4 * 8 * 8, 2 * 9 * 10};
+        for (int shape = 0; shape < catalog.getShapesCount(); shape++) {
+            assertEquals(sizes[shape], atlas.getShapeSize(shape));
+            assertEquals(placements[shape], atlas.getShapeEnd(shape) - atlas.getShapeStart(shape));
+        }
+    }
+
+    @Test
+    public void testCellSet() throws Exception {
+        CellSet set = new CellSet();
+        set.fill();
+        assertEquals(100, set.size());
+        assertEquals(true, set.remove(42));
+        assertEquals(false, set.remove(42));
+        assertEquals(false, set.contains(42));
+        // All the remaining cells are picked once
+        boolean[] picked = new boolean[100];
+        for (int i = 0; i < 99; i++) {
+            int cell = set.removeRandom();
+            assertEquals(false, picked[cell]);
+            picked[cell] = true;
+        }
+        assertEquals(true, set.isEmpty());
+        assertEquals(-1, set.removeRandom());
+    }
+
+    @Test
+    public void testDensityMapUpdate() throws Exception {
+        Maps.init();
+        // The densities updated by delta are the ones computed from the Storage Map,
+        // for the Density Map and for a copy sharing its arrays
+        GameController player = new GameController(Maps.getMap(0));
+        GameController storage = new GameController(Maps.getMap(1));
+        DensityMap densityMap = new DensityMap();
+        GameController copyStorage = null;
+        DensityMap copy = null;
+        Random random = new Random(42);
+        BitBoard available = new BitBoard();
+        Result result = new Result(0, 0, NONE, Result.Type.MISSED, null);
+        for (int shot = 1; result.getType() != VICTORY; shot++) {
+            storage.getAvailableMask(available);
+            int cell = available.getSetBit(random.nextInt(available.count()));
+            result = player.shot(BitBoard.getX(cell), BitBoard.getY(cell));
+            storage.setPlayResult(result);
+            densityMap.update(result);
+            // Speculative branch: a few misses of its own, then left behind
+            if (shot == 20) {
+                copyStorage = storage.getStorageCopy();
+                copy = new DensityMap(densityMap);
+                for (int i = 0; i < 3; i++) {
+                    copyStorage.getAvailableMask(available);
+                    cell = available.getSetBit(random.nextInt(available.count()));
+                    Result missed = new Result(BitBoard.getX(cell), BitBoard.getY(cell), NONE, Result.Type.MISSED, null);
+                    copyStorage.setPlayResult(missed);
+                    copy.update(missed);
+                }
+                assertDensities(copyStorage, copy);
+            }
+            if (shot % 5 == 0 || result.getType() != Result.Type.MISSED) {
+                assertDensities(storage, densityMap);
+            }
+        }
+        assertDensities(copyStorage, copy);
+    }
+
+    private void assertDensities(GameController storage, DensityMap densityMap) {
+        DensityMap computed = new DensityMap();
+        computed.compute(storage);
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            assertEquals(computed.getDensity(cell), densityMap.getDensity(cell), 1e-3f);
+            for (int shape = 0; shape < storage.getShapesCount(); shape++) {
+                assertEquals(computed.getShapeDensity(shape, cell), densityMap.getShapeDensity(shape, cell), 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void testFleetSampler() throws Exception {
+        Maps.init();
+        // All the empty cells are missed but a dozen: the layouts can be enumerated, and the
+        // frequencies of the samples are the ones of the layouts
+        GameController player = new GameController(Maps.getMap(0));
+        GameController storage = new GameController(Maps.getMap(1));
+        BitBoard fleet = player.getFleetMask();
+        int kept = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (fleet.get(cell)) {
+                continue;
+            }
+            if (kept < 12 && cell % 7 == 3) {
+                kept++;
+                continue;
+            }
+            storage.setPlayResult(new Result(BitBoard.getX(cell), BitBoard.getY(cell), NONE, Result.Type.MISSED, null));
+        }
+        LayoutEnumerator enumerator = new LayoutEnumerator(storage);
+        BitBoard mask = new BitBoard();
+        float[] frequencies = new float[BitBoard.CELLS];
+        int layouts = 0;
+        while (enumerator.next()) {
+            enumerator.getMask(mask);
+            for (int cell = mask.nextSetBit(0); cell != -1; cell = mask.nextSetBit(cell + 1)) {
+                frequencies[cell]++;
+            }
+            layouts++;
+        }
+        assertTrue(layouts > 1);
+
+        FleetSampler sampler = new FleetSampler();
+        sampler.setTimeBudget(10000);
+        sampler.setMaxSamples(20000);
+        assertTrue(sampler.sample(storage) > 0);
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            assertEquals(frequencies[cell] / layouts, sampler.getFrequency(cell), 0.03f);
+        }
+        assertTrue(sampler.isReliable());
+        // The best cells, the best first
+        int[] cells = new int[BitBoard.CELLS];
+        int count = sampler.getBestCells(storage.getPlayedMask(), cells);
+        assertTrue(count > 0);
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (!storage.getPlayedMask().get(cell)) {
+                assertTrue(sampler.getFrequency(cells[0]) >= sampler.getFrequency(cell));
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            assertTrue(sampler.getFrequency(cells[i - 1]) >= sampler.getFrequency(cells[i]));
+        }
+        // Out of time: too few samples to be cached
+        sampler.setTimeBudget(0);
+        sampler.sample(storage);
+        assertEquals(false, sampler.isReliable());
+    }
+
+    @Test
+    public void testEndgameSolver() throws Exception {
+        Maps.init();
+        // Everything is shot but a Shape and the cells around it: the solver's expected shots
+        // are the ones of a brute force search, and its shot is an optimal one
+        PlacementAtlas atlas = PlacementAtlas.getInstance();
+        BitBoard near = new BitBoard();
+        BitBoard square = new BitBoard();
+        int checked = 0;
+        for (int shape = 0; shape < atlas.getShapesCount(); shape++) {
+            GameController player = new GameController(Maps.getMap(0));
+            GameController storage = new GameController(Maps.getMap(1));
+            BitBoard shapeMask = new BitBoard(player.getShapeMask(shape));
+            near.clear();
+            for (int cell = shapeMask.nextSetBit(0); cell != -1; cell = shapeMask.nextSetBit(cell + 1)) {
+                square.setSquare(cell);
+                near.or(square);
+            }
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                if (!near.get(cell) || (player.getFleetMask().get(cell) && !shapeMask.get(cell))) {
+                    storage.setPlayResult(player.shot(BitBoard.getX(cell), BitBoard.getY(cell)));
+                }
+            }
+
+            // The brute force is too slow beyond a few layouts
+            if (new LayoutEnumerator(storage).count(15) > 14) {
+                continue;
+            }
+            EndgameSolver solver = new EndgameSolver();
+            solver.setNodeBudget(Integer.MAX_VALUE);
+            int cell = solver.solve(storage);
+            assertNotEquals(-1, cell);
+            assertTrue(solver.isComplete());
+
+            ArrayList<byte[]> layouts = new ArrayList<>();
+            ArrayList<BitBoard> masks = new ArrayList<>();
+            LayoutEnumerator enumerator = new LayoutEnumerator(storage);
+            while (enumerator.next()) {
+                BitBoard mask = new BitBoard();
+                enumerator.getMask(mask);
+                masks.add(mask);
+                byte[] layout = new byte[BitBoard.CELLS];
+                for (int s = 0; s < atlas.getShapesCount(); s++) {
+                    for (int c : atlas.getCells(enumerator.getPlacement(s))) {
+                        layout[c] = (byte) (s + 1);
+                    }
+                }
+                layouts.add(layout);
+            }
+            long alive = (1L << layouts.size()) - 1;
+            BitBoard shot = new BitBoard(storage.getPlayedMask());
+            HashMap<String, Float> memo = new HashMap<>();
+            float expected = bruteForce(layouts, masks, alive, shot, memo);
+            assertEquals(expected, solver.getExpectedShots(), 1e-3f);
+            assertEquals(expected, bruteForce(layouts, masks, alive, shot, cell, memo), 1e-3f);
+            checked++;
+        }
+        assertTrue(checked >= 3);
+    }
+
+    /**
+     * Expected count of remaining shots of the alive layouts (the Shape + 1 on each cell)
+     */
+    private float bruteForce(ArrayList<byte[]> layouts, ArrayList<BitBoard> masks, long alive, BitBoard shot,
+                             HashMap<String, Float> memo) {
+        String key = alive + "/" + shot.getLow() + "/" + shot.getHigh();
+        Float value = memo.get(key);
+        if (value != null) {
+            return value;
+        }
+        long remaining = 0;
+        BitBoard cells = new BitBoard();
+        for (int l = 0; l < layouts.size(); l++) {
+            if ((alive & (1L << l)) != 0 && !shot.contains(masks.get(l))) {
+                cells.or(masks.get(l));
+                remaining |= 1L << l;
+            }
+        }
+        cells.andNot(shot);
+        float best = 0;
+        if (remaining != 0) {
+            best = Float.MAX_VALUE;
+            for (int cell = cells.nextSetBit(0); cell != -1; cell = cells.nextSetBit(cell + 1)) {
+                best = Math.min(best, bruteForce(layouts, masks, remaining, shot, cell, memo));
+            }
+            best *= Long.bitCount(remaining) / (float) Long.bitCount(alive);
+        }
+        memo.put(key, best);
+        return best;
+    }
+
+    /**
+     * Expected count of remaining shots of the alive layouts, shooting the cell first
+     */
+    private float bruteForce(ArrayList<byte[]> layouts, ArrayList<BitBoard> masks, long alive, BitBoard shot, int cell,
+                             HashMap<String, Float> memo) {
+        BitBoard next = new BitBoard(shot);
+        next.set(cell);
+        float value = 1;
+        for (int shape = 0; shape <= PlacementAtlas.getInstance().getShapesCount(); shape++) {
+            long split = 0;
+            for (int l = 0; l < layouts.size(); l++) {
+                if ((alive & (1L << l)) != 0 && layouts.get(l)[cell] == shape) {
+                    split |= 1L << l;
+                }
+            }
+            if (split != 0) {
+                value += Long.bitCount(split) / (float) Long.bitCount(alive) * bruteForce(layouts, masks, split, next, memo);
+            }
+        }
+        return value;
+    }
+
+    @Test
+    public void testLookahead() throws Exception {
+        Maps.init();
+        GameController storage = new GameController(Maps.getMap(1));
+        DensityMap densityMap = new DensityMap();
+        densityMap.compute(storage);
+        Lookahead lookahead = new Lookahead(densityMap);
+        BitBoard played = storage.getPlayedMask();
+        int cell = lookahead.plan(played, Deadline.NONE);
+        assertNotEquals(-1, cell);
+        assertTrue(lookahead.isComplete());
+        // Out of time: the first candidate only, not to be cached
+        assertNotEquals(-1, lookahead.plan(played, new Deadline(0)));
+        assertEquals(false, lookahead.isComplete());
+    }
+
+    @Test
+    public void testZobristHash() throws Exception {
+        // The same results in any order give the same hash
+        ZobristHash hash1 = new ZobristHash();
+        hash1.update(12, 0);
+        hash1.update(45, NONE);
+        ZobristHash hash2 = new ZobristHash();
+        hash2.update(45, NONE);
+        hash2.update(12, 0);
+        assertEquals(hash1.getHash(), hash2.getHash());
+        hash2.drown(0);
+        assertNotEquals(hash1.getHash(), hash2.getHash());
+    }
+
+    @Test
+    public void testMovePlanner() throws Exception {
+        Maps.init();
+        GameController gameController = new GameController(Maps.getMap(0));
+        gameController.setBonus();
+        // The enemy touched the first Tetromino and missed around
+        int touched = gameController.getFleetMask().nextSetBit(0);
+        int touchedShape = gameController.getShape(touched);
+        gameController.shot(BitBoard.getX(touched), BitBoard.getY(touched));
+        for (int cell = 0; cell < BitBoard.CELLS; cell += 3) {
+            if (!gameController.getFleetMask().get(cell)) {
+                gameController.shot(BitBoard.getX(cell), BitBoard.getY(cell));
+            }
+        }
+        BitBoard shot = new BitBoard(gameController.getShotMask());
+        BitBoard others = new BitBoard(gameController.getFleetMask());
+        others.or(gameController.getBonusMask());
+
+        MovePlanner planner = new MovePlanner();
+        planner.setThreshold(0);
+        int placement = planner.plan(gameController);
+        assertNotEquals(-1, placement);
+        int shape = planner.getShape();
+        assertNotEquals(touchedShape, shape);
+        BitBoard mask = new BitBoard();
+        PlacementAtlas.getInstance().getMask(placement, mask);
+        // The move avoids the shots and the other Tetrominos
+        assertEquals(false, mask.intersects(shot));
+        others.andNot(gameController.getShapeMask(shape));
+        assertEquals(false, mask.intersects(others));
+
+        gameController.moveShape(shape, mask);
+        assertEquals(mask, gameController.getShapeMask(shape));
+        int cell = mask.nextSetBit(0);
+        assertEquals(shape, gameController.getShape(cell));
+        assertEquals(TOUCHED, gameController.shot(BitBoard.getX(cell), BitBoard.getY(cell)).getType());
+    }
+
+    @Test
+    public void testLayoutOptimizer() throws Exception {
+        PlacementAtlas atlas = PlacementAtlas.getInstance();
+        LayoutOptimizer optimizer = new LayoutOptimizer();
+        optimizer.setSteps(2000);
+        for (int i = 0; i < 10; i++) {
+            char[][] map = optimizer.optimize();
+            Utils.printMap(map);
+            GameController gameController = new GameController(map);
+            // Each Tetromino must be a legal placement, without overlaps
+            assertEquals(atlas.getCatalog().getFleetSize(), gameController.getFleetMask().count());
+            for (int shape = 0; shape < atlas.getShapesCount(); shape++) {
+                assertNotEquals(-1, atlas.find(shape, gameController.getShapeMask(shape)));
+            }
+        }
+        // The Player shoots the left half first: the Tetrominos are hidden on the right
+        float[] heat = new float[BitBoard.CELLS];
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            heat[cell] = BitBoard.getX(cell) < Settings.GRID_SIZE / 2 ? 1 : 0.01f;
+        }
+        optimizer = new LayoutOptimizer(heat);
+        optimizer.setSteps(2000);
+        GameController gameController = new GameController(optimizer.optimize());
+        BitBoard fleet = gameController.getFleetMask();
+        int right = 0;
+        for (int cell = fleet.nextSetBit(0); cell != -1; cell = fleet.nextSetBit(cell + 1)) {
+            if (BitBoard.getX(cell) >= Settings.GRID_SIZE / 2) {
+                right++;
+            }
+        }
+        assertTrue(right > fleet.count() * 3 / 4);
+    }
+
+    @Test
+    public void testSkillTable() throws Exception {
+        for (AI.Level level : AI.Level.values()) {
+            if (!SkillTable.isCalibrated(level)) {
+                assertEquals(1, SkillTable.getSkill(level), 0);
+                continue;
+            }
+            // The skill giving a count of shots gives it back, and fewer shots need more skill
+            float previous = -1;
+            for (float shots = 100; shots >= 20; shots -= 0.5f) {
+                float skill = SkillTable.getSkill(level, shots);
+                assertTrue(skill >= previous && skill >= 0 && skill <= 1);
+                if (skill > 0 && skill < 1) {
+                    assertEquals(shots, SkillTable.getExpectedShots(level, skill), 0.01);
+                }
+                previous = skill;
+            }
+        }
+    }
+
+    @Test
+    public void testStrategyRegistry() throws Exception {
+        Maps.init();
+        // Each registered Strategy wins a game, without playing a cell twice
+        for (String name : StrategyRegistry.getNames()) {
+            char[][] map = Maps.getMap(0);
+            AI ai = new AI();
+            ai.setPlayerMap(map);
+            ai.setLevel(I);
+            ai.setStrategy(name);
+            GameController gameController = new GameController(map);
+            Result result = new Result(0, 0, NONE, Result.Type.MISSED, null);
+            int shootCount = 0;
+            while (result.getType() != VICTORY) {
+                Point p = ai.play();
+                assertTrue(name, !gameController.getShotMask().get(p.x, p.y));
+                shootCount++;
+                result = gameController.shot(p.x, p.y);
+                ai.setResult(result);
+            }
+            Log.d(TAG, "testStrategyRegistry: " + name + ": Total Shoot Count: " + shootCount);
+            assertTrue(name, shootCount <= BitBoard.CELLS);
+        }
+    }
+
+    @Test
+    public void testAICopy() throws Exception {
+        Maps.init();
+        // The copies share the AI's Items' Map: the Player's shots on the AI reach them
+        AI ai = new AI(Maps.getMap(0));
+        AI copy = new AI(ai);
+        BitBoard fleet = new GameController(Maps.getMap(0)).getFleetMask();
+        int last = -1;
+        for (int i = fleet.nextSetBit(0); i != -1; i = fleet.nextSetBit(i + 1)) {
+            if (last != -1) {
+                ai.shot(BitBoard.getX(last), BitBoard.getY(last));
+            }
+            last = i;
+        }
+        assertEquals(VICTORY, copy.shot(BitBoard.getX(last), BitBoard.getY(last)).getType());
+        // The knowledge is not shared
+        copy.setResult(new Result(0, 0, NONE, Result.Type.MISSED, null));
+        assertTrue(copy.getGameController().alreadyPlayed(0, 0));
+        assertTrue(!ai.getGameController().alreadyPlayed(0, 0));
+    }
+
     public boolean contains(char[] array, char character) {
         for (int i = 0; i < array.length; i++) {
             if(array[i] == character) {
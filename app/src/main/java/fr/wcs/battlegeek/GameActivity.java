@@ -33,20 +33,34 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import fr.wcs.battlegeek.controller.AI;
+import fr.wcs.battlegeek.controller.AIExecutor;
 import fr.wcs.battlegeek.controller.DataController;
+import fr.wcs.battlegeek.controller.DifficultyController;
 import fr.wcs.battlegeek.controller.GameController;
+import fr.wcs.battlegeek.controller.HintEngine;
+import fr.wcs.battlegeek.controller.LayoutOptimizer;
+import fr.wcs.battlegeek.controller.OpeningBook;
+import fr.wcs.battlegeek.controller.PlacementPrior;
+import fr.wcs.battlegeek.controller.ShotHeat;
+import fr.wcs.battlegeek.controller.ShotAnalyzer;
+import fr.wcs.battlegeek.controller.SkillTable;
 import fr.wcs.battlegeek.controller.SoundController;
 import fr.wcs.battlegeek.model.Bonus;
+import fr.wcs.battlegeek.model.Maps;
 import fr.wcs.battlegeek.model.PlayerModel;
 import fr.wcs.battlegeek.model.Result;
 import fr.wcs.battlegeek.model.Settings;
 import fr.wcs.battlegeek.ui.EndGameDefeatFragment;
+import fr.wcs.battlegeek.ui.EndGameFragment;
 import fr.wcs.battlegeek.ui.EndGameVictoryFragment;
 import fr.wcs.battlegeek.ui.GameView;
 import fr.wcs.battlegeek.ui.MapView;
 import fr.wcs.battlegeek.ui.QuitGameFragment;
+import fr.wcs.battlegeek.utils.BitBoard;
 import fr.wcs.battlegeek.utils.Utils;
 
 import static fr.wcs.battlegeek.model.Bonus.Type.BOMB;
@@ -69,7 +83,7 @@ public class GameActivity extends AppCompatActivity {
     private PlayerModel mPlayer;
     private DataController mDataController;
 
-    private AI mAI;
+    private AIExecutor mAI;
     private GameController mGameController;
     private boolean canPlay = true;
     private Bonus.Type mSelectedBonus = null;
@@ -89,6 +103,7 @@ public class GameActivity extends AppCompatActivity {
     private ImageButton mButtonMove;
     private ImageButton mButtonReplay;
     private ImageButton mButtonCrossFire;
+    private ImageButton mButtonHint;
 
     private TextView mTextViewPlayer;
     private TextView mTextViewAI;
@@ -106,6 +121,14 @@ public class GameActivity extends AppCompatActivity {
     private int mAnimationsSpeed;
 
 
+    private PlacementPrior mPlacementPrior;
+    private ShotHeat mShotHeat;
+    // AI's layout, optimized while the Player places its Tetrominos
+    private Future<char[][]> mAILayout = null;
+    private DifficultyController mDifficulty = null;
+    private HintEngine mHintEngine = null;
+    private ShotAnalyzer mShotAnalyzer = new ShotAnalyzer();
+
     private SoundController mSoundController;
     private int mVolumeMusic;
     private int mVolumeEffects;
@@ -142,6 +165,16 @@ public class GameActivity extends AppCompatActivity {
 
         //Call SharedPref
         mSharedPreferences = getSharedPreferences(Settings.FILE_NAME, MODE_PRIVATE);
+        mPlacementPrior = new PlacementPrior(mContext);
+        mShotHeat = new ShotHeat(mContext);
+        OpeningBook.load(mContext);
+        if (mLevel != AI.Level.I) {
+            // The AI hides its Tetrominos where the Player shoots late
+            mAILayout = LayoutOptimizer.submit(mShotHeat.getHeat());
+        }
+        if (SkillTable.isCalibrated(mLevel)) {
+            mDifficulty = new DifficultyController(mContext, mLevel);
+        }
 
         // Get Player
         mDataController = new DataController(getApplicationContext());
@@ -150,6 +183,9 @@ public class GameActivity extends AppCompatActivity {
             public void onDataReadyListener(PlayerModel player) {
                 mPlayer = player;
                 Log.d(TAG, "onCreate: " + mPlayer.toString());
+                if (mDifficulty != null) {
+                    mDifficulty.setPlayer(mPlayer);
+                }
             }
         });
 
@@ -258,15 +294,22 @@ public class GameActivity extends AppCompatActivity {
                     mMapView.setMap(mGameController.getMap());
                     mMapView.setMode(MapView.Mode.PLAY);
 
-                    mAI = new AI();
+                    AI ai = new AI(getAILayout());
+                    // The AI learns where the Player places its Tetrominos
+                    ai.setPlacementWeights(mPlacementPrior.getWeights());
+                    mPlacementPrior.record(mapData);
                     if (mLevel == AI.Level.III || mLevel == AI.Level.IMPOSSIBLE) {
-                        mAI.setPlayerMap(mapData);
+                        ai.setPlayerMap(mapData);
                     }
 
                     if (mLevel == AI.Level.III) {
                         mGameView.setRandomColor(true);
                     }
-                    mAI.setLevel(mLevel);
+                    ai.setLevel(mLevel);
+                    ai.setDifficulty(mDifficulty);
+                    // The AI thinks in the background
+                    mAI = new AIExecutor(ai);
+                    mHintEngine = new HintEngine();
 
                     mButtonLaunchGame.setVisibility(View.INVISIBLE);
                     mTextViewAI.setTextColor(Color.parseColor("#FF960D"));
@@ -411,6 +454,26 @@ public class GameActivity extends AppCompatActivity {
             }
         });
 
+        mButtonHint = (ImageButton) findViewById(R.id.buttonHint);
+        mButtonHint.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                if (!canPlay || mHintEngine == null) {
+                    return;
+                }
+                // The hint may still miss the last result
+                ArrayList<Point> cells = new ArrayList<>();
+                for (int cell : mHintEngine.getHint()) {
+                    int x = BitBoard.getX(cell);
+                    int y = BitBoard.getY(cell);
+                    if (!mGameController.alreadyPlayed(x, y)) {
+                        cells.add(new Point(x, y));
+                    }
+                }
+                mGameView.setHint(cells);
+            }
+        });
+
         mButtonCrossFire = (ImageButton) findViewById(R.id.buttonBonusCrossFire);
         mButtonCrossFire.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -456,12 +519,17 @@ public class GameActivity extends AppCompatActivity {
      */
     private void playerPlay(int x, int y) {
         canPlay = false;
+        mGameView.setHint(new ArrayList<Point>());
+        mShotAnalyzer.addShot(x, y);
+        mShotHeat.addShot(x, y);
 
         Result.Type resultType = null;
 
         if (mSelectedBonus != BOMB) {
             Result result = mAI.shot(x, y);
             mGameController.setPlayResult(result);
+            mHintEngine.update(result);
+            mShotAnalyzer.addResult(result);
             resultType = result.getType();
             showResult(result);
             mSoundController.playSound(resultType);
@@ -477,6 +545,8 @@ public class GameActivity extends AppCompatActivity {
             for (Point point : points) {
                 Result result = mAI.shot(point.x, point.y);
                 mGameController.setPlayResult(result);
+                mHintEngine.update(result);
+                mShotAnalyzer.addResult(result);
                 results.add(result);
             }
             // Sort Result
@@ -563,14 +633,68 @@ public class GameActivity extends AppCompatActivity {
                 mGameView.setTouch(x, y, result.getShape());
                 mTimer.cancel();
                 updatePlayerStatistics();
+                mShotHeat.record();
                 FragmentManager fm = getFragmentManager();
                 EndGameVictoryFragment endGameVictoryFragment = new EndGameVictoryFragment();
                 endGameVictoryFragment.show(fm, String.valueOf(R.string.end_game_fragment_title));
                 endGameVictoryFragment.setCancelable(false);
+                analyzeShots(endGameVictoryFragment);
                 break;
         }
     }
 
+    /**
+     * Method analyzing the Player's shots, the analysis is shown in the End Game's Dialog
+     * @param fragment
+     */
+    private void analyzeShots(final EndGameFragment fragment) {
+        mShotAnalyzer.analyze(new ShotAnalyzer.Listener() {
+            @Override
+            public void onShot(ShotAnalyzer.Shot shot, int count, float regret) {
+                fragment.setAnalysis(getString(R.string.analysisProgress, shot.getNumber(), count));
+            }
+
+            @Override
+            public void onFinish(ArrayList<ShotAnalyzer.Shot> worst, float regret) {
+                StringBuilder analysis = new StringBuilder(getString(R.string.analysisRegret, regret));
+                for (ShotAnalyzer.Shot shot : worst) {
+                    analysis.append('\n').append(getString(R.string.analysisWorstShot,
+                            shot.getNumber(), getCellName(shot.getCell()),
+                            Math.round(shot.getDensity() * 100),
+                            getCellName(shot.getBestCell()),
+                            Math.round(shot.getBestDensity() * 100)));
+                }
+                fragment.setAnalysis(analysis);
+            }
+        });
+    }
+
+    /**
+     * Method returning the name of the cell: its column's letter and its row's number
+     * @param cell the cell's index
+     * @return
+     */
+    private String getCellName(int cell) {
+        return String.valueOf((char) ('A' + BitBoard.getX(cell))) + (BitBoard.getY(cell) + 1);
+    }
+
+    /**
+     * Method returning the AI's layout optimized during the placement
+     * Level I keeps the predefined Maps, as does a layout not ready yet: the UI Thread doesn't
+     * wait for it
+     * @return the AI's Map
+     */
+    private char[][] getAILayout() {
+        if (mAILayout != null && mAILayout.isDone()) {
+            try {
+                return mAILayout.get();
+            } catch (InterruptedException | ExecutionException e) {
+                Log.e(TAG, "getAILayout: layout failed", e);
+            }
+        }
+        return Maps.getMap();
+    }
+
     /**
      * Method handling the AI's part
      */
@@ -579,9 +703,28 @@ public class GameActivity extends AppCompatActivity {
         mTextViewAI.setTextColor(Color.parseColor("#FF960D"));
         mTextViewAI.setText(R.string.AITurn);
 
-        final Point aiPlayCoordinates = mAI.play();
+        mAI.play(new AIExecutor.OnPlayListener() {
+            @Override
+            public void onPlay(Point point, Bonus.Type selectedBonus) {
+                showAIPlay(point, selectedBonus);
+            }
+
+            @Override
+            public void onMove(int shape) {
+                // Notify Player AI Using MOVE Bonus
+                showToast(R.string.aiUseBonusMove);
+            }
+        });
+    }
+
+    /**
+     * Method playing the AI's move
+     * @param aiPlayCoordinates the AI's move
+     * @param aiSelectedBonus the Bonus used by the AI
+     */
+    private void showAIPlay(final Point aiPlayCoordinates, final Bonus.Type aiSelectedBonus) {
         // Notify Player AI Using REPLAY Bonus
-        if(mAI.getSelectedBonus() == REPLAY) {
+        if(aiSelectedBonus == REPLAY) {
             showToast(R.string.aiUseBonusReplay);
         }
 
@@ -593,9 +736,8 @@ public class GameActivity extends AppCompatActivity {
             public void onTick(long l) {
                 if (cursor == 1) {
                     // We need to drop that Bomb ...
-                    if(mAI.getSelectedBonus() == BOMB) {
-                        ArrayList<Point> points = mAI.getGameController()
-                                .getSurrondingcoordinates(aiPlayCoordinates);
+                    if(aiSelectedBonus == BOMB) {
+                        ArrayList<Point> points = mAI.getSurrondingcoordinates(aiPlayCoordinates);
                         // Get the results first
                         ArrayList<Result> results = new ArrayList<>();
                         for (Point point : points) {
@@ -626,7 +768,6 @@ public class GameActivity extends AppCompatActivity {
 
             @Override
             public void onFinish() {
-                Bonus.Type aiSelectedBonus = mAI.getSelectedBonus();
                 if (resultType == MISSED && aiSelectedBonus != REPLAY) {
                     mTextViewAI.setText(R.string.AITurn);
                     canPlay = true;
@@ -639,11 +780,16 @@ public class GameActivity extends AppCompatActivity {
                     mPlayer.addGameTime(mLevel, DEFEATED, mTime);
                     mPlayer.addDefeat(mLevel);
                     mDataController.updatePlayer(mPlayer);
+                    if (mDifficulty != null) {
+                        mDifficulty.addResult(false);
+                    }
+                    mShotHeat.record();
                     mTimer.cancel();
                     FragmentManager fm = getFragmentManager();
                     EndGameDefeatFragment endGameDefeatFragment = new EndGameDefeatFragment();
                     endGameDefeatFragment.show(fm, String.valueOf(R.string.end_game_fragment_title));
                     endGameDefeatFragment.setCancelable(false);
+                    analyzeShots(endGameDefeatFragment);
                     mAIShouldPlay = false;
                     mSoundController.playMusicDefeat();
                 } else if (!mExit) {
@@ -705,6 +851,9 @@ public class GameActivity extends AppCompatActivity {
         mPlayer.addVictory(mLevel);
         mPlayer.addShotsCount(mLevel, mShotsCounter);
         mDataController.updatePlayer(mPlayer);
+        if (mDifficulty != null) {
+            mDifficulty.addResult(true);
+        }
     }
 
     /**
@@ -878,6 +1027,13 @@ public class GameActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         mSoundController.release();
+        if (mAI != null) {
+            mAI.release();
+        }
+        if (mHintEngine != null) {
+            mHintEngine.release();
+        }
+        mShotAnalyzer.release();
         super.onDestroy();
     }
 }
\ No newline at end of file
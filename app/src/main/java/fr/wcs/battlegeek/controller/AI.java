@@ -4,27 +4,24 @@ import android.graphics.Point;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Random;
 
 import fr.wcs.battlegeek.model.Bonus;
 import fr.wcs.battlegeek.model.Maps;
 import fr.wcs.battlegeek.model.Result;
 import fr.wcs.battlegeek.model.Settings;
-import fr.wcs.battlegeek.ui.Tetromino;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+import fr.wcs.battlegeek.utils.BitBoard;
+import fr.wcs.battlegeek.utils.CellSet;
+import fr.wcs.battlegeek.utils.Deadline;
 import fr.wcs.battlegeek.utils.Utils;
 
 import static fr.wcs.battlegeek.model.Result.Type.BONUS;
 import static fr.wcs.battlegeek.model.Result.Type.DROWN;
 import static fr.wcs.battlegeek.model.Result.Type.MISSED;
 import static fr.wcs.battlegeek.model.Result.Type.TOUCHED;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.J;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.L;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.NONE;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.O;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.S;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.T;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.Z;
+import static fr.wcs.battlegeek.model.Result.Type.VICTORY;
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
 
 /**
  * Created by adphi on 03/10/17.
@@ -39,7 +36,8 @@ public class AI {
         I ("Level I"),
         II ("Level II"),
         III ("Level III"),
-        IMPOSSIBLE ("Level Impossible");
+        IMPOSSIBLE ("Level Impossible"),
+        EXPERT ("Level Expert");
 
         private String name = "";
 
@@ -52,35 +50,140 @@ public class AI {
         }
     }
 
+    /**
+     * Engines of the Level Expert
+     */
+    public enum Engine {
+        // Probability Density of each Shape, updated with each result
+        DENSITY,
+        // Monte Carlo Sampling of complete Fleet's layouts
+        SAMPLING,
+        // Probability Density of each Shape, the shot maximizing the information gained
+        ENTROPY,
+        // Probability Density of each Shape, the shot maximizing the touches over two shots
+        LOOKAHEAD
+    }
+
+    // Default time budget of a move (milliseconds)
+    public static final long DEFAULT_MOVE_TIME = 8;
+
     private final String TAG = Settings.TAG;
     private Level mLevel;
+    // Strategy choosing the shots, the Level's one unless set (see StrategyRegistry)
+    private ShotStrategy mStrategy = null;
+    // Probability of the Level's strong move (see SkillTable)
+    private float mSkill = 1;
+    private Random mRandom = new Random();
+    // Adjusts the skill to the Player, null for the Skill Table's one
+    private DifficultyController mDifficulty = null;
+    private Deadline mDeadline = Deadline.NONE;
+    private Engine mEngine = Engine.DENSITY;
     private Bonus.Type mSelectedBonus = null;
 
-    private Point mLastPlayedCoordinates;
     private Result mLastResult = new Result(-1, -1, NONE, MISSED, null);
 
 
+    // The AI's Items' Map, shot by the Player: shared by the AI's copies, guarded by itself
+    private GameController mBoard;
+    // The AI's knowledge of the Player's Map: the Storage Map only
     private GameController mGameControler;
-    private ArrayList<Point> mPlayableCoordinates;
-    private ArrayList<Point> mProbableCoordinates;
     private char[][] mPlayerMap;
-    private ArrayList<Point> mSurroudingCoordinates = new ArrayList<>();
-    private HashMap<Tetromino.Shape, ArrayList<Point>> mShapeMap = new HashMap<>();
-    private HashMap<Tetromino.Shape, ArrayList<Point>> mCheatMap = new HashMap<>();
-    private Tetromino.Shape mLastTouchedShape = null;
     private ArrayList<Bonus.Type> mAvailablesBonuses = new ArrayList<>();
 
+    // Buffer used for the masks operations
+    private BitBoard mBuffer = new BitBoard();
+
+    // Probability Density of the Player's Tetrominos, updated with each shot's result
+    private DensityMap mDensityMap = new DensityMap();
+
+    // Minimal density (relative to the highest one) of the probable coordinates
+    private static final float PROBABLE_DENSITY_RATIO = 0.75f;
+
+    // Sampler of the Player's Fleet (Level Expert, Sampling Engine)
+    private FleetSampler mFleetSampler = null;
+
+    // Two shots Lookahead (Level Expert, Lookahead Engine)
+    private Lookahead mLookahead = null;
+
+    // Planner of the Cross Fire Bonus
+    private BombPlanner mBombPlanner = new BombPlanner(mDensityMap);
+    // Planner of the Move Bonus, created on first use
+    private MovePlanner mMovePlanner = null;
+
+    // Exact Solver of the endgames (Level Expert)
+    private EndgameSolver mEndgameSolver = new EndgameSolver();
+
+    // Knowledge's hash, and the shared Cache of the Level Expert's moves
+    private ZobristHash mZobristHash = new ZobristHash();
+    private TranspositionCache mCache = TranspositionCache.getInstance();
+    // Distinguishes the moves computed with other placements' weights
+    private long mCacheSalt = 0;
+    private int[] mBestCells = new int[BitBoard.CELLS];
+
+    // Precomputed first shots
+    private OpeningBook mOpeningBook = OpeningBook.getInstance();
+
     /**
-     * AI Constructor
+     * AI Constructor, with a random predefined Map
      */
     public AI() {
+        this(Maps.getMap());
+    }
+
+    /**
+     * AI Constructor
+     * @param map the AI's Items' Map (see LayoutOptimizer)
+     */
+    public AI(char[][] map) {
         // Create a Game Controller
-        mGameControler = new GameController(Maps.getMap());
-        mGameControler.setBonus();
-        Utils.printMap(mGameControler.getMap());
-        // Get all Playables Coordinates
-        mPlayableCoordinates = Maps.getPlayableCoordinates();
-        mSurroudingCoordinates = new ArrayList<>();
+        mBoard = new GameController(map);
+        mBoard.setBonus();
+        Utils.printMap(mBoard.getMap());
+        mGameControler = mBoard.getStorageCopy();
+    }
+
+    /**
+     * Copy Constructor: the copy can play and process results without changing the original AI
+     * (used for the speculative moves)
+     * Only the knowledge is copied: the copy shares the AI's Items' Map, so the Player's shots
+     * reach both
+     *
+     * @param other the AI to copy
+     */
+    public AI(AI other) {
+        this(other, other.mStrategy == null ? null : other.mStrategy.copy());
+    }
+
+    /**
+     * Copy Constructor, playing with another Strategy (see PortfolioStrategy)
+     * The Strategy is not reset: it goes on with the game
+     *
+     * @param other the AI to copy
+     * @param strategy
+     */
+    AI(AI other, ShotStrategy strategy) {
+        mLevel = other.mLevel;
+        mStrategy = strategy;
+        mSkill = other.mSkill;
+        mDifficulty = other.mDifficulty;
+        mEngine = other.mEngine;
+        mSelectedBonus = other.mSelectedBonus;
+        mLastResult = other.mLastResult;
+        mBoard = other.mBoard;
+        mGameControler = other.mGameControler.getStorageCopy();
+        mPlayerMap = other.mPlayerMap;
+        mAvailablesBonuses = new ArrayList<>(other.mAvailablesBonuses);
+        mDensityMap = new DensityMap(other.mDensityMap);
+        mBombPlanner = new BombPlanner(mDensityMap);
+        mEndgameSolver.setNodeBudget(other.mEndgameSolver.getNodeBudget());
+        mZobristHash = new ZobristHash(other.mZobristHash);
+        mCacheSalt = other.mCacheSalt;
+        if (other.mFleetSampler != null) {
+            mFleetSampler = new FleetSampler();
+        }
+        if (other.mLookahead != null) {
+            mLookahead = new Lookahead(mDensityMap);
+        }
     }
 
     /**
@@ -92,26 +195,38 @@ public class AI {
      */
     public Result shot(int x, int y) {
         // AI send the coordinates his controller to analyse the result and store the shot
-        return mGameControler.shot(x, y);
+        synchronized (mBoard) {
+            return mBoard.shot(x, y);
+        }
     }
 
     /**
-     * Method for getting AI play Coordinates
+     * Method for getting AI play Coordinates, within the default time budget
      *
      * @return the coordinates
      */
     public Point play() {
-        switch (mLevel) {
-            case I:
-                return playLevelI();
-            case II:
-                return playLevelII();
-            case III:
-                return playLevelII();
-            case IMPOSSIBLE:
-                return playLevelImpossible();
+        return play(DEFAULT_MOVE_TIME);
+    }
+
+    /**
+     * Method for getting AI play Coordinates
+     * The searches (layouts' enumeration, sampling, endgame) stop at the deadline and return
+     * the best move found so far
+     *
+     * @param millis the time budget of the move, in milliseconds
+     * @return the coordinates
+     */
+    public Point play(long millis) {
+        mDeadline = new Deadline(millis);
+        if (mDifficulty != null) {
+            synchronized (mBoard) {
+                mBuffer.set(mBoard.getShotMask());
+                mBuffer.and(mBoard.getFleetMask());
+            }
+            mSkill = mDifficulty.getSkill(mGameControler.getHitMask().count(), mBuffer.count());
         }
-        return null;
+        return mStrategy.play(this);
     }
 
     /**
@@ -121,903 +236,405 @@ public class AI {
      */
     public void setLevel(Level level) {
         mLevel = level;
+        mSkill = SkillTable.getSkill(level);
+        setStrategy(StrategyRegistry.create(level));
+    }
 
-        mProbableCoordinates = getProbablePoints();
-
-        // Impossible Level Strategy
-        if ((level == Level.III || level == Level.IMPOSSIBLE) && mPlayerMap != null) {
-            // We only need to get the coordinates of all the Items in the Player's Map
-            for (int i = 0; i < mPlayerMap.length; i++) {
-                for (int j = 0; j < mPlayerMap[i].length; j++) {
-                    // If not a Bonus or Empty
-                    if (mPlayerMap[i][j] != ' ' && mPlayerMap[i][j] != '+'
-                            && mPlayerMap[i][j] != '-' && mPlayerMap[i][j] != '=') {
-                        String symbol = String.valueOf(mPlayerMap[i][j]);
-                        Tetromino.Shape shape = Tetromino.Shape.valueOf(symbol);
-                        if (!mCheatMap.containsKey(shape)) {
-                            mCheatMap.put(shape, new ArrayList<Point>());
-                        }
-                        Point point = new Point(j, i);
-                        mCheatMap.get(shape).add(point);
-
-                    }
-                }
-            }
-        }
+    /**
+     * Method setting the Strategy choosing the shots, instead of the Level's one
+     * To call after setLevel(), which sets the Level's Strategy
+     * The Strategy is reset: it starts the game
+     * @param strategy
+     */
+    public void setStrategy(ShotStrategy strategy) {
+        mStrategy = strategy;
+        mStrategy.reset(this);
     }
 
     /**
-     * Method returning the Selected Bonus of th AI.
+     * Method returning the deadline of the current move
      * @return
      */
-    public Bonus.Type getSelectedBonus() {
-        return mSelectedBonus;
+    Deadline getDeadline() {
+        return mDeadline;
     }
 
     /**
-     * Method to call after the Player's game controller process the AI play method
-     * this allow the AI'game processor to store the result in his Storage Map and process
-     * the result in order to adapt the AI strategy
-     *
-     * @param result
+     * Method returning the chance to touch of the coordinates, according to the AI's knowledge
+     * @param point
+     * @return
      */
-    public void setResult(Result result) {
-        mGameControler.setPlayResult(result);
-        mLastResult = result;
-        mLastPlayedCoordinates = new Point(result.getX(), result.getY());
-        mPlayableCoordinates.remove(mLastPlayedCoordinates);
-        mProbableCoordinates.remove(mLastPlayedCoordinates);
-        mSurroudingCoordinates.remove(mLastPlayedCoordinates);
-        Result.Type resultType = result.getType();
-        Tetromino.Shape resultShape = result.getShape();
-        if(resultType == BONUS) {
-            Bonus.Type bonus = mLastResult.getBonusType();
-            // We don't want to implement MOVE Bonus
-            if(bonus != Bonus.Type.MOVE) {
-                mAvailablesBonuses.add(bonus);
-            }
-        }
+    float getDensity(Point point) {
+        return mDensityMap.getDensity(getIndex(point));
+    }
 
-        if(resultType == TOUCHED) {
-            if (!mShapeMap.containsKey(resultShape)) {
-                mShapeMap.put(resultShape, new ArrayList<Point>());
-            }
-            mShapeMap.get(resultShape).add(mLastPlayedCoordinates);
-        }
+    /**
+     * Method taking over the move played by a copy of the AI (see PortfolioStrategy)
+     * The copy's Bonuses are taken as they are: the copy must be discarded
+     * @param other the copy, after its play
+     */
+    void adopt(AI other) {
+        mSelectedBonus = other.mSelectedBonus;
+        mAvailablesBonuses = other.mAvailablesBonuses;
+    }
 
-        if(resultType == DROWN) {
-            mShapeMap.remove(resultShape);
-            mPlayableCoordinates.addAll(mSurroudingCoordinates);
-            mSurroudingCoordinates.clear();
-            mLastTouchedShape = mShapeMap.isEmpty() ? null : (Tetromino.Shape) mShapeMap.keySet().toArray()[0];
-        }
+    /**
+     * Method returning the Player's Map given to the AI (cheating Strategies)
+     * @return null if not given
+     */
+    char[][] getPlayerMap() {
+        return mPlayerMap;
     }
 
     /**
-     * Method that process the shot's result to return AI plays Coordinates
-     * Level 1 : Play randomly then play all around when TOUCHED a Tetromino
-     * @return
+     * Method setting a registered Strategy, instead of the Level's one
+     * @param name the Strategy's name (see StrategyRegistry)
      */
-    private Point playLevelI() {
-        // Give the type of result (missed, touched ...)
-        Result.Type resultType = mLastResult.getType();
-        // Get the type of Tetromino shape
-        Tetromino.Shape resultShape = mLastResult.getShape();
+    public void setStrategy(String name) {
+        setStrategy(StrategyRegistry.create(name));
+    }
 
-        // AI Use REPLAY Bonus if Possible
-        if(mAvailablesBonuses.contains(Bonus.Type.REPLAY)) {
-            mSelectedBonus = Bonus.Type.REPLAY;
-            mAvailablesBonuses.remove(Bonus.Type.REPLAY);
-        }
-        else if(resultType == MISSED){
-            mSelectedBonus = null;
-        }
-        else if(mSelectedBonus == Bonus.Type.BOMB) {
-            mSelectedBonus = null;
-        }
+    /**
+     * Method setting the probability of the Level's strong move, overriding the Skill Table
+     * @param skill
+     */
+    public void setSkill(float skill) {
+        mSkill = skill;
+    }
 
-        // BONUS CROSS FIRE
-        if(mAvailablesBonuses.contains(Bonus.Type.BOMB)) {
-            mSelectedBonus = Bonus.Type.BOMB;
-            mAvailablesBonuses.remove(mSelectedBonus);
-            // Get A Point
-            mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
-            mPlayableCoordinates.remove(mLastPlayedCoordinates);
-            // Remove the surrounding Points
-            ArrayList<Point> bombPoints = mGameControler.getSurrondingcoordinates(mLastPlayedCoordinates.x,
-                    mLastPlayedCoordinates.y);
-            mPlayableCoordinates.removeAll(bombPoints);
-            mSurroudingCoordinates.removeAll(bombPoints);
-            return mLastPlayedCoordinates;
-        }
+    /**
+     * Method setting the controller adjusting the skill to the Player, before each move
+     * @param difficulty null for the Skill Table's skill
+     */
+    public void setDifficulty(DifficultyController difficulty) {
+        mDifficulty = difficulty;
+    }
 
-        //Play randomly during hunt mode (nothing found and looking for tetromino)
-        if (mSurroudingCoordinates.isEmpty() && (resultType == MISSED || resultType == BONUS)) {
-            if(!mProbableCoordinates.isEmpty()) {
-                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
-                mPlayableCoordinates.remove(mLastPlayedCoordinates);
-            }
-            else{
-                mLastPlayedCoordinates = getRandomPoint(mPlayableCoordinates);
-            }
+    /**
+     * Method drawing the strong or the weak move, according to the skill
+     * @return true for the strong move
+     */
+    boolean isSkilled() {
+        return mSkill >= 1 || mRandom.nextFloat() < mSkill;
+    }
 
-            return mLastPlayedCoordinates;
+    /**
+     * Method setting the Engine used by the Level Expert
+     * @param engine
+     */
+    public void setEngine(Engine engine) {
+        mEngine = engine;
+        if (engine == Engine.SAMPLING && mFleetSampler == null) {
+            mFleetSampler = new FleetSampler();
         }
-
-        //When a boat is drown go back in hunt mode
-        if (resultType == DROWN) {
-            if(mLastTouchedShape != null) {
-                ArrayList<Point> touchedPoint = mShapeMap.get(mLastTouchedShape);
-                for(Point p : touchedPoint) {
-                    getSurroundingCoordinates(p);
-                }
-                mLastPlayedCoordinates = getRandomPoint(mSurroudingCoordinates);
-                mPlayableCoordinates.remove(mLastPlayedCoordinates);
-                return mLastPlayedCoordinates;
-            }
-            else {
-                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
-                mPlayableCoordinates.remove(mLastPlayedCoordinates);
-                return mLastPlayedCoordinates;
-            }
+        if (engine == Engine.LOOKAHEAD && mLookahead == null) {
+            mLookahead = new Lookahead(mDensityMap);
         }
+    }
 
-        //When a result type is touched, go in target mode by creating a map of possible coordinates
-
-        if (resultType != MISSED && resultType != BONUS) {
-            mLastTouchedShape = resultShape;
-            getSurroundingCoordinates(mLastPlayedCoordinates);
-        }
+    /**
+     * Method setting the prior over the Player's placements
+     * @param weights the weight of each placement of the Placement Atlas, null for uniform weights
+     */
+    public void setPlacementWeights(float[] weights) {
+        mDensityMap.setWeights(weights);
+        mDensityMap.compute(mGameControler);
+        mCacheSalt = weights == null ? 0 : Arrays.hashCode(weights) * 0x9E3779B97F4A7C15L;
+    }
 
-        //Shot in the possible coordinates (target mode)
-        mLastPlayedCoordinates = getRandomPoint(mSurroudingCoordinates);
-        mProbableCoordinates.remove(mLastPlayedCoordinates);
-        return mLastPlayedCoordinates;
+    /**
+     * Method setting the nodes budget of the Endgame Solver
+     * @param nodeBudget
+     */
+    public void setEndgameNodeBudget(int nodeBudget) {
+        mEndgameSolver.setNodeBudget(nodeBudget);
     }
 
     /**
-     * Method that process the shot's result to return AI plays Coordinates
-     * Level 2 : Play randomly in probables coordinates (counting empty surrounding cells)
-     * When it founds a Tetromino it starts analysing the possibles coordinates of the
-     * remaining Blocks.
+     * Method returning the Selected Bonus of th AI.
      * @return
      */
-    private Point playLevelII() {
-        // Store the Result's Type and Shape
-        Result.Type resultType = mLastResult.getType();
-        Tetromino.Shape resultShape = mLastResult.getShape();
+    public Bonus.Type getSelectedBonus() {
+        return mSelectedBonus;
+    }
 
-        // AI Use REPLAY Bonus if Possible
-        if(mAvailablesBonuses.contains(Bonus.Type.REPLAY)) {
-            mSelectedBonus = Bonus.Type.REPLAY;
-            mAvailablesBonuses.remove(Bonus.Type.REPLAY);
-        }
-        else if(resultType == MISSED){
-            mSelectedBonus = null;
+    /**
+     * Method to call after the Player's game controller process the AI play method
+     * this allow the AI'game processor to store the result in his Storage Map and process
+     * the result in order to adapt the AI strategy
+     *
+     * @param result
+     */
+    public void setResult(Result result) {
+        mGameControler.setPlayResult(result);
+        mDensityMap.update(result);
+        mLastResult = result;
+        mZobristHash.update(result);
+        if(result.getType() == BONUS) {
+            mAvailablesBonuses.add(result.getBonusType());
         }
-        else if(mSelectedBonus == Bonus.Type.BOMB) {
-            mSelectedBonus = null;
+        if (mStrategy != null) {
+            mStrategy.onResult(this, result);
         }
+    }
 
-        // Update Probability Coordinates
-        mProbableCoordinates = getProbablePoints();
-
-        // We Touched Something !! Yihaaaaa !
-        if(resultType == TOUCHED && mLastTouchedShape == null) {
-            // Store the Shape to hunt
-            mLastTouchedShape = resultShape;
-            // Try to find Coordinates according to the Shape
-            // We store the result directly in the mLastPlayCoordinates buffer
-            mLastPlayedCoordinates = hunt(resultShape);
-            // Remove Point for PlayablesCoordinates
-            mPlayableCoordinates.remove(mLastPlayedCoordinates);
-            // Remove Point from ProbableCoordinates
-            mProbableCoordinates.remove(mLastPlayedCoordinates);
-            // Return the coordinates
-            return mLastPlayedCoordinates;
-        }
-        // Are we hunting something ?
-        else if(mLastTouchedShape != null) {
-            // Let's hunt !
-            mLastPlayedCoordinates = hunt(mLastTouchedShape);
-            // Clean Duplicates
-            mPlayableCoordinates.remove(mLastPlayedCoordinates);
-            mProbableCoordinates.remove(mLastPlayedCoordinates);
-            // Shoooooooot !
-            return mLastPlayedCoordinates;
-        }
-        // We don't have any Shape for hunting
-        if(!mProbableCoordinates.isEmpty()) {
-            // BONUS CROSS FIRE
-            // Let's try to drop a Bomb
-            if(mAvailablesBonuses.contains(Bonus.Type.BOMB)) {
-                // Select the Bomb bonus
-                mSelectedBonus = Bonus.Type.BOMB;
-                // Bomb is not available anymore
-                mAvailablesBonuses.remove(mSelectedBonus);
-                // Get An interesting Point
-                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
-                // Clean duplicates
-                mPlayableCoordinates.remove(mLastPlayedCoordinates);
-                // Remove the surrounding Points
-                ArrayList<Point> bombPoints = mGameControler.getSurrondingcoordinates(mLastPlayedCoordinates.x,
-                        mLastPlayedCoordinates.y);
-                mPlayableCoordinates.removeAll(bombPoints);
-                mSurroudingCoordinates.removeAll(bombPoints);
-                // Let's drop a Big Bomb
-                return mLastPlayedCoordinates;
-            }
-            // We don't have a bomb, so, sadly try a point in probables Coordinates
-            mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
-            // Cleaning
-            mPlayableCoordinates.remove(mLastPlayedCoordinates);
-        }
-        // We don't have Interesting Points (should not happen)
-        else{
-            mLastPlayedCoordinates = getRandomPoint(mPlayableCoordinates);
-        }
-        return mLastPlayedCoordinates;
+    /**
+     * Method using the Move Bonus, if available: the AI hides one of its Tetrominos not touched
+     * yet from the Player's next shots (see MovePlanner)
+     * To call at the beginning of the AI's turn, before play()
+     * @return the moved Shape's index, NONE if the Bonus is not available or kept for later
+     */
+    public int moveShape() {
+        if(!mAvailablesBonuses.contains(Bonus.Type.MOVE)) {
+            return NONE;
+        }
+        if(mMovePlanner == null) {
+            mMovePlanner = new MovePlanner();
+        }
+        int shape;
+        synchronized (mBoard) {
+            int placement = mMovePlanner.plan(mBoard);
+            if(placement == -1) {
+                return NONE;
+            }
+            BitBoard mask = new BitBoard();
+            PlacementAtlas.getInstance().getMask(placement, mask);
+            shape = mMovePlanner.getShape();
+            mBoard.moveShape(shape, mask);
+        }
+        mAvailablesBonuses.remove(Bonus.Type.MOVE);
+        return shape;
     }
 
     /**
-     * Method return each point of the Cheating Hash Map, witch contains the position of all the
-     * enemy Tetromino
-     * @return
+     * Method returning the Opening Book's shot for the current knowledge
+     * The book is computed with uniform placements' weights and the seven Tetrominos, so it is not
+     * used with a learned prior or another Fleet
+     * @return the cell's index, -1 if out of the book
      */
-    private Point playLevelImpossible() {
-        for (Tetromino.Shape shape : mCheatMap.keySet()) {
-            if(!mCheatMap.get(shape).isEmpty()) {
-                ArrayList<Point> shapeCoordinates = mCheatMap.get(shape);
-                mLastPlayedCoordinates = shapeCoordinates.get(0);
-                shapeCoordinates.remove(mLastPlayedCoordinates);
-                return mLastPlayedCoordinates;
-            }
-        }
-        return null;
+    int getBookCell() {
+        BitBoard played = mGameControler.getPlayedMask();
+        if (mCacheSalt != 0 || mGameControler.getCatalog() != ShapeCatalog.getDefault()
+                || played.count() >= mOpeningBook.getDepth()) {
+            return -1;
+        }
+        int cell = mOpeningBook.getCell(mZobristHash.getHash());
+        return cell == -1 || played.get(cell) ? -1 : cell;
     }
 
     /**
-     * Method hunting the Tetromino depending on the Shape
-     * @param shape
+     * Method returning the Cache's key of the current knowledge, for the current Engine and weights
      * @return
      */
-    private Point hunt(Tetromino.Shape shape) {
-        // Let's Start the Hunting with the Shape
-        // Get the Shape's Founded Coordinates
-        ArrayList<Point> foundedCoordinates = mShapeMap.get(shape);
-        // Hunt Tetromino O
-        if(shape == O) {
-            // We only have found 1 point for now
-            if(foundedCoordinates.size() == 1) {
-                // Get surrounding Coordinates
-                getSurroundingCoordinates(foundedCoordinates.get(0));
-                mLastPlayedCoordinates = getRandomPoint(mSurroudingCoordinates);
-                return mLastPlayedCoordinates;
-            }
-            // We have Two Points
-            else if(foundedCoordinates.size() == 2) {
-                // Cleaning
-                mPlayableCoordinates.addAll(mSurroudingCoordinates);
-                mSurroudingCoordinates.clear();
-
-                // What are this points
-                Point point1 = foundedCoordinates.get(0);
-                Point point2 = foundedCoordinates.get(1);
-
-                // We have to try to find the Y value
-                if(point1.x == point2.x) {
-                    mSurroudingCoordinates.addAll(getSurroundingX(point1));
-                }
-                // We have to try to find the X value
-                else if(point1.y == point2.y) {
-                    mSurroudingCoordinates.addAll(getSurroundingY(point1));
-                }
-                // We have the X and Y value, so lets find the 2 remaining
-                else {
-                    Point p1 = getPointFromPlayableCoordinates(point1.x, point2.y);
-                    Point p2 = getPointFromPlayableCoordinates(point2.x, point1.y);
-                    if(p1 != null) mSurroudingCoordinates.add(p1);
-                    if(p2 != null) mSurroudingCoordinates.add(p2);
-                }
-
-                return getRandomPoint(mSurroudingCoordinates);
-            }
-            //Let's find the last one
-            else if(foundedCoordinates.size() == 3){
-                ArrayList<Integer> xCoordinates = new ArrayList<>();
-                ArrayList<Integer> yCoordinates = new ArrayList<>();
-                for (Point point : foundedCoordinates) {
-                    xCoordinates.add(point.x);
-                    yCoordinates.add(point.y);
-                }
-                // Find X
-                int x = 0;
-                // We need to find the only X occurrence
-                for (int i = 0; i < xCoordinates.size(); i++) {
-                    if(Collections.frequency(xCoordinates, xCoordinates.get(i)) == 1){
-                        x = xCoordinates.get(i);
-                    }
-                }
-
-                // Find Y
-                int y = 0;
-                // We need to find the only Y occurrence
-                for (int i = 0; i < yCoordinates.size(); i++) {
-                    if(Collections.frequency(yCoordinates, yCoordinates.get(i)) == 1){
-                        y = yCoordinates.get(i);
-                    }
-                }
-
-                // We got it !!!
-                return getPointFromPlayableCoordinates(x, y);
-            }
-        }
-        // Oh my God !! We are hunting the easiest One
-        else if(shape == Tetromino.Shape.I) {
-            if(foundedCoordinates.size() == 1) {
-                // Try to get the orientation
-                getSurroundingCoordinates(foundedCoordinates.get(0));
-                return getRandomPoint(mSurroudingCoordinates);
-            }
-            // We got the orientation
-            else if(foundedCoordinates.size() >= 2) {
-                mPlayableCoordinates.addAll(mSurroudingCoordinates);
-                mSurroudingCoordinates.clear();
-                Point point1 = foundedCoordinates.get(0);
-                Point point2 = foundedCoordinates.get(1);
-                // Horizontal
-                if(point1.x == point2.x) {
-                    for(Point p : foundedCoordinates) {
-                        mSurroudingCoordinates.addAll(getSurroundingY(p));
-                    }
-                }
-                // Vertical
-                else if(point1.y == point2.y) {
-                    for(Point p : foundedCoordinates) {
-                        mSurroudingCoordinates.addAll(getSurroundingX(p));
-                    }
-                }
-                return  getRandomPoint(mSurroudingCoordinates);
-            }
-            // Let's find the Last One
-            else if(foundedCoordinates.size() == 3) {
-                mPlayableCoordinates.addAll(mSurroudingCoordinates);
-                mSurroudingCoordinates.clear();
-
-                Point point1 = foundedCoordinates.get(0);
-                Point point2 = foundedCoordinates.get(1);
-                // Vertical
-                if(point1.x == point2.x) {
-                    int x = point1.x;
-                    int minY = min(foundedCoordinates, "y");
-                    int maxY = max(foundedCoordinates, "y");
-                    // Try before and after the 3 known blocks (X axis)
-                    if(minY - 1 >= 0 && !mGameControler.alreadyPlayed(x, minY - 1)) {
-                        mSurroudingCoordinates.add(new Point(x, minY - 1));
-                    }
-                    if(maxY + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(x, maxY + 1)) {
-                        mSurroudingCoordinates.add(new Point(x, maxY + 1));
-                    }
-                }
-                // Horizontal
-                else {
-                    int y = point1.y;
-                    int minX = min(foundedCoordinates, "x");
-                    int maxX = max(foundedCoordinates, "x");
-                    // Try before and after the 3 known blocks (Y axis)
-                    if(minX - 1 >= 0 && !mGameControler.alreadyPlayed(minX - 1, y)) {
-                        mSurroudingCoordinates.add(new Point(minX - 1, y));
-                    }
-                    if(maxX + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(maxX + 1, y)) {
-                        mSurroudingCoordinates.add(new Point(maxX + 1, y));
-                    }
-                }
-                return getRandomPoint(mSurroudingCoordinates);
-
-            }
-        }
-        // The Tetromino T is kind of funny
-        else if(shape == T && foundedCoordinates.size() == 3) {
-            mPlayableCoordinates.addAll(mSurroudingCoordinates);
-            mSurroudingCoordinates.clear();
-            // Let's see... what do we got ?
-            Point point1 = foundedCoordinates.get(0);
-            Point point2 = foundedCoordinates.get(1);
-            Point point3 = foundedCoordinates.get(2);
-            // Vertical ?
-            if(point1.x == point2.x && point2.x == point3.x) {
-                // Find Middle
-                ArrayList<Integer> yCoordinates = new ArrayList<>();
-                yCoordinates.add(point1.y);
-                yCoordinates.add(point2.y);
-                yCoordinates.add(point3.y);
-                Collections.sort(yCoordinates);
-                int x = point1.x;
-                int y = yCoordinates.get(1);
-                // Let's try to get the last One.
-                if(x - 1 >= 0 && !mGameControler.alreadyPlayed(x - 1,y)) mSurroudingCoordinates.add(new Point(x - 1, y));
-                if(x + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(x + 1, y)) mSurroudingCoordinates.add
-                        (new Point(x + 1, y));
-                // Feel Lucky ?
-                return getRandomPoint(mSurroudingCoordinates);
-            }
-            // Horizontal ?
-            else if(point1.y == point2.y && point2.y == point3.y) {
-                // Find Middle
-                ArrayList<Integer> xCoordinates = new ArrayList<>();
-                xCoordinates.add(point1.x);
-                xCoordinates.add(point2.x);
-                xCoordinates.add(point3.x);
-                Collections.sort(xCoordinates);
-                int y = point1.y;
-                int x = xCoordinates.get(1);
-                // The last One is not that far away
-                if(y - 1 >= 0 && !mGameControler.alreadyPlayed(x, y - 1)) mSurroudingCoordinates.add
-                        (new Point(x, y - 1));
-                if(y + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(x, y + 1)) mSurroudingCoordinates.add
-                        (new Point(x, y + 1));
-                // Let's try something
-                return getRandomPoint(mSurroudingCoordinates);
-            }
+    private long getCacheKey() {
+        return mZobristHash.getHash() ^ mCacheSalt ^ (mEngine.ordinal() + 1) * 0xC2B2AE3D27D4EB4FL;
+    }
 
-            // Common Shape
-            else {
-                // Let's find the Pair of x and y of the last Block
-                ArrayList<Integer> xCoordinates = new ArrayList<>();
-                ArrayList<Integer> yCoordinates = new ArrayList<>();
-                for (Point point : foundedCoordinates) {
-                    xCoordinates.add(point.x);
-                    yCoordinates.add(point.y);
-                }
-                // We need the x Axis (2 points with same X)
-                int x = 0;
-                for (int i = 0; i < xCoordinates.size(); i++) {
-                    if(Collections.frequency(xCoordinates, xCoordinates.get(i)) == 2){
-                        x = xCoordinates.get(i);
-                    }
-                }
-                // We need the y Axis (2 points with same Y)
-                int y = 0;
-                for (int i = 0; i < yCoordinates.size(); i++) {
-                    if(Collections.frequency(yCoordinates, yCoordinates.get(i)) == 2){
-                        y = yCoordinates.get(i);
-                    }
-                }
-                getSurroundingCoordinates(new Point(x,y));
-                return getRandomPoint(mSurroudingCoordinates);
+    /**
+     * Method returning a random move of the cached moves
+     * @param moves
+     * @param played the played cells' mask
+     * @return the cell's index, -1 if a move was already played (hash collision)
+     */
+    private int getCachedCell(TranspositionCache.ScoredMoves moves, BitBoard played) {
+        for (int i = 0; i < moves.getMovesCount(); i++) {
+            if (played.get(moves.getMove(i))) {
+                return -1;
             }
-
-
         }
-        else if((shape == L || shape == J) && foundedCoordinates.size() > 2) {
-            mPlayableCoordinates.addAll(mSurroudingCoordinates);
-            mSurroudingCoordinates.clear();
-            Point point1 = foundedCoordinates.get(0);
-            Point point2 = foundedCoordinates.get(1);
-            Point point3 = foundedCoordinates.get(2);
-            // Vertical
-            if(point1.x == point2.x && point2.x == point3.x) {
-                int x = point1.x;
-                // find y min and max
-                int minY = min(foundedCoordinates, "y");
-                int maxY = max(foundedCoordinates, "y");
-                if(shape == L) {
-                    if(x - 1 >= 0 && !mGameControler.alreadyPlayed(x - 1, minY)) {
-                        mSurroudingCoordinates.add(new Point(x - 1, minY));
-                    }
-                    if(x + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(x + 1, maxY)) {
-                        mSurroudingCoordinates.add(new Point(x + 1, maxY));
-                    }
-                }
-                // Shape J
-                else {
-                    if(x - 1 >= 0 && !mGameControler.alreadyPlayed(x - 1, maxY)) {
-                        mSurroudingCoordinates.add(new Point(x - 1, maxY));
-                    }
-                    if(x + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(x + 1, minY)) {
-                        mSurroudingCoordinates.add(new Point(x + 1, minY));
-                    }
-                }
-            }
-            // Horizontal
-            else if(point1.y == point2.y && point2.y == point3.y) {
-                int y = point1.y;
-                // find y min and max
-                int minX = min(foundedCoordinates, "x");
-                int maxX = max(foundedCoordinates, "x");
-                if(shape == L) {
-                    if(y - 1 >= 0 && !mGameControler.alreadyPlayed(maxX, y - 1)) {
-                        mSurroudingCoordinates.add(new Point(maxX, y - 1));
-                    }
-                    if(y + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(minX, y + 1)) {
-                        mSurroudingCoordinates.add(new Point(minX, y + 1));
-                    }
-                }
-                // Shape J
-                else {
-                    if(y - 1 >= 0 && !mGameControler.alreadyPlayed(minX, y - 1)) {
-                        mSurroudingCoordinates.add(new Point(minX, y - 1));
-                    }
-                    if(y + 1 < Settings.GRID_SIZE && !mGameControler.alreadyPlayed(maxX, y + 1)) {
-                        mSurroudingCoordinates.add(new Point(maxX, y + 1));
-                    }
-                }
-            }
-            // Common Shape
-            else if(isCommonShape(foundedCoordinates)){
-                // Which rotation ?
-                int rotation = getCommonShapeMatrixRotation(foundedCoordinates);
-                int minX = min(foundedCoordinates, "x");
-                int maxX = max(foundedCoordinates, "x");
-                int minY = min(foundedCoordinates, "y");
-                int maxY = max(foundedCoordinates, "y");
-                if(rotation == 0) {
-                    if (shape == L) {
-                        mSurroudingCoordinates.add(new Point(maxX + 1, minY));
-                    } else {
-                        mSurroudingCoordinates.add(new Point(minX, maxY + 1));
-                    }
-                }
-                else if (rotation == 1) {
-                    if (shape == L) {
-                        mSurroudingCoordinates.add(new Point(maxX, maxY + 1));
-                    } else {
-                        mSurroudingCoordinates.add(new Point(minX - 1, minY));
-                    }
-                }
-                else if (rotation == 2) {
-                    if (shape == L) {
-                        mSurroudingCoordinates.add(new Point(minX - 1, maxY));
-                    } else {
-                        mSurroudingCoordinates.add(new Point(maxX, minY - 1));
-                    }
-                }
-                else if (rotation == 3) {
-                    if (shape == L) {
-                        mSurroudingCoordinates.add(new Point(minX, minY - 1));
-                    } else {
-                        mSurroudingCoordinates.add(new Point(maxX + 1, maxY));
-                    }
-                }
-            }
-            else {
-                for(Point p : foundedCoordinates) {
-                    getSurroundingCoordinates(p);
-                }
-            }
+        return moves.getMove((int) (Math.random() * moves.getMovesCount()));
+    }
 
-            return getRandomPoint(mSurroudingCoordinates);
+    /**
+     * Method selecting the REPLAY Bonus if available, and releasing the previous selected Bonus
+     * once used
+     */
+    void updateSelectedBonus() {
+        if(mAvailablesBonuses.contains(Bonus.Type.REPLAY)) {
+            mSelectedBonus = Bonus.Type.REPLAY;
+            mAvailablesBonuses.remove(Bonus.Type.REPLAY);
         }
-        else if((shape == S || shape == Z) && foundedCoordinates.size() == 3 && isCommonShape(foundedCoordinates)) {
-            mPlayableCoordinates.addAll(mSurroudingCoordinates);
-            mSurroudingCoordinates.clear();
-            int rotation = getCommonShapeMatrixRotation(foundedCoordinates);
-            int minX = min(foundedCoordinates, "x");
-            int maxX = max(foundedCoordinates, "x");
-            int minY = min(foundedCoordinates, "y");
-            int maxY = max(foundedCoordinates, "y");
-            if(rotation == 0) {
-                if(shape == S) {
-                    mSurroudingCoordinates.add(new Point(minX - 1, maxY));
-                }
-                else {
-                    mSurroudingCoordinates.add(new Point(maxX, minY - 1));
-                }
-            }
-            else if(rotation == 1) {
-                if(shape == S) {
-                    mSurroudingCoordinates.add(new Point(minX, minY - 1));
-                }
-                else {
-                    mSurroudingCoordinates.add(new Point(maxX + 1, maxY));
-                }
-            }
-            else if(rotation == 2) {
-                if(shape == S) {
-                    mSurroudingCoordinates.add(new Point(maxX + 1, minY));
-                }
-                else {
-                    mSurroudingCoordinates.add(new Point(minX, maxY + 1));
-                }
-            }
-            else if(rotation == 3) {
-                if(shape == S) {
-                    mSurroudingCoordinates.add(new Point(maxX, maxY + 1));
-                }
-                else {
-                    mSurroudingCoordinates.add(new Point(minX - 1, minY));
-                }
-            }
-            return getRandomPoint(mSurroudingCoordinates);
+        else if(mLastResult.getType() == MISSED){
+            mSelectedBonus = null;
         }
-        else {
-            if(foundedCoordinates.size() > 0) {
-                for(Point p : foundedCoordinates) {
-                    getSurroundingCoordinates(p);
-                }
-            }
-            else if (mLastResult.getType() == TOUCHED) {
-                getSurroundingCoordinates(mLastPlayedCoordinates);
-            }
-            return getRandomPoint(mSurroudingCoordinates);
+        else if(mSelectedBonus == Bonus.Type.BOMB) {
+            mSelectedBonus = null;
         }
-        return null;
     }
 
-    // Common Shape Rotation's Matrix Definition
-    private int[][] commonShapeRotation1 = new int[][]{
-            {1,1},
-            {1,0}
-    };
-    private int[][] commonShapeRotation2 = new int[][]{
-            {1,1},
-            {0,1}
-    };
-    private int[][] commonShapeRotation3 = new int[][]{
-            {0,1},
-            {1,1}
-    };
-    private int[][] commonShapeRotation4 = new int[][]{
-            {1,0},
-            {1,1}
-    };
-
     /**
-     * Method returning the rotation's ID if the common shape.
-     * The common shape is present in all Tetrominos except I.
-     * @param points
-     * @return
+     * Method planning the Cross Fire Bonus, if available (see BombPlanner)
+     * @return the center's index, -1 if the Bonus is not available or not worth it
      */
-    private int getCommonShapeMatrixRotation(ArrayList<Point> points) {
-        // Rotations Definitions
-        ArrayList<Point> pointsCopy = Utils.copyPoints(points);
-        int minX = min(pointsCopy, "x");
-        int minY = min(pointsCopy, "y");
-
-        // Apply Offset && Convert to matrix
-        int[][] matrix = new int[][]{{0,0},{0,0}};
-        for (Point p : pointsCopy) {
-            p.x -= minX;
-            p.y -= minY;
-            matrix[p.y][p.x] = 1;
-        }
-
-        ArrayList<int[][]> rotations = new ArrayList<>();
-        rotations.add(commonShapeRotation1);
-        rotations.add(commonShapeRotation2);
-        rotations.add(commonShapeRotation3);
-        rotations.add(commonShapeRotation4);
-
-        for (int i = 0; i < rotations.size(); i++) {
-            if(Arrays.deepEquals(matrix, rotations.get(i))) {
-                return i;
-            }
+    int planBomb() {
+        if(!mAvailablesBonuses.contains(Bonus.Type.BOMB)) {
+            return -1;
         }
-
-        return - 1;
-    }
-
-    private boolean isCommonShape(ArrayList<Point> points){
-        int minX = min(points, "x");
-        int maxX = max(points, "x");
-        int minY = min(points, "y");
-        int maxY = max(points, "y");
-
-        return (maxX - minX) < 2 && (maxY - minY) < 2;
+        return mBombPlanner.plan(mGameControler.getPlayedMask());
     }
 
     /**
-     * Method return the minimum for the selected axis in a Point ArrayList
-     * @param points
-     * @param axis the axis : "x" or "y"
-     * @return
+     * Method selecting the Cross Fire Bonus centered on the cell
+     * @param center the center's index
+     * @return the center's coordinates
      */
-    private int min(ArrayList<Point> points, String axis) {
-        if(axis.equals("x")) {
-            int minX = points.get(0).x;
-            for (Point p : points) {
-                if (p.x < minX) {
-                    minX = p.x;
-                }
-            }
-            return minX;
-        }
-        else {
-            int minY = points.get(0).y;
-            for (Point p : points) {
-                if (p.y < minY) {
-                    minY = p.y;
-                }
-            }
-            return minY;
-        }
+    Point dropBomb(int center) {
+        mSelectedBonus = Bonus.Type.BOMB;
+        mAvailablesBonuses.remove(mSelectedBonus);
+        return new Point(BitBoard.getX(center), BitBoard.getY(center));
     }
 
     /**
-     * Method return the maximum for the selected axis in a Point ArrayList
-     * @param points
-     * @param axis the axis : "x" or "y"
+     * Method that process the shot's result to return AI plays Coordinates
+     * Level Expert : Play the cell with the highest probability density, computed from all
+     * the placements of the remaining Shapes consistent with the Storage Map,
+     * or one of the cells the most often occupied by the sampled Fleet's layouts (Sampling Engine).
+     * The endgames are solved exactly.
+     * The touched Shapes are hunted naturally, as only their placements covering the touched
+     * cells are left.
+     * The first shots come from the Opening Book, then the moves are cached by knowledge state,
+     * so the states met again are not computed again.
      * @return
      */
-    private int max(ArrayList<Point> points, String axis) {
-        if(axis.equals("x")) {
-            int maxX = points.get(0).x;
-            for (Point p : points) {
-                if (p.x > maxX) {
-                    maxX = p.x;
+    Point playLevelExpert() {
+        // AI Use REPLAY Bonus if Possible
+        updateSelectedBonus();
+
+        BitBoard played = mGameControler.getPlayedMask();
+        // Opening: the book knows the best shot
+        int cell = getBookCell();
+        // Same knowledge already met: reuse its moves
+        long key = getCacheKey();
+        if (cell == -1) {
+            TranspositionCache.ScoredMoves cached = mCache.get(key);
+            cell = cached == null ? -1 : getCachedCell(cached, played);
+        }
+        if (cell == -1) {
+            // Few layouts left: solve it
+            cell = mEndgameSolver.solve(mGameControler, mDeadline);
+            if (cell != -1 && mEndgameSolver.isComplete()) {
+                mCache.put(key, new TranspositionCache.ScoredMoves(new int[] {cell},
+                        new float[] {mEndgameSolver.getExpectedShots()}));
+            }
+            if (cell == -1 && mEngine == Engine.SAMPLING && mFleetSampler.sample(mGameControler, mDeadline) > 0) {
+                int count = mFleetSampler.getBestCells(played, mBestCells);
+                if (count > 0) {
+                    int[] moves = Arrays.copyOf(mBestCells, count);
+                    // A short sampling is too noisy to be replayed by the other AIs
+                    if (mFleetSampler.isReliable()) {
+                        float[] scores = new float[count];
+                        for (int i = 0; i < count; i++) {
+                            scores[i] = mFleetSampler.getFrequency(moves[i]);
+                        }
+                        mCache.put(key, new TranspositionCache.ScoredMoves(moves, scores));
+                    }
+                    cell = moves[(int) (Math.random() * count)];
+                }
+            }
+            if (cell == -1 && mEngine == Engine.LOOKAHEAD) {
+                cell = mLookahead.plan(played, mDeadline);
+                if (cell != -1 && mLookahead.isComplete()) {
+                    mCache.put(key, new TranspositionCache.ScoredMoves(new int[] {cell},
+                            new float[] {mLookahead.getValue()}));
                 }
             }
-            return maxX;
         }
-        else {
-            int maxY = points.get(0).y;
-            for (Point p : points) {
-                if (p.y > maxY) {
-                    maxY = p.y;
+        // Density Engines, or no consistent layout found: the best cells are cached
+        if (cell == -1) {
+            boolean entropy = mEngine == Engine.ENTROPY;
+            int count = entropy ? mDensityMap.getBestEntropyCells(played, mBestCells)
+                    : mDensityMap.getBestCells(played, mBestCells);
+            if (count > 0) {
+                int[] moves = Arrays.copyOf(mBestCells, count);
+                float[] scores = new float[count];
+                for (int i = 0; i < count; i++) {
+                    scores[i] = entropy ? mDensityMap.getEntropy(moves[i]) : mDensityMap.getDensity(moves[i]);
                 }
+                mCache.put(key, new TranspositionCache.ScoredMoves(moves, scores));
+                cell = moves[(int) (Math.random() * count)];
             }
-            return maxY;
         }
-    }
 
-    /**
-     * Method returning the empty cells surrounding the given Point on the X axis
-     * @param point
-     * @return
-     */
-    private ArrayList<Point> getSurroundingX(Point point) {
-        ArrayList<Point> surroundingX = new ArrayList<>();
-        int minX = Math.max(point.x - 1, 0);
-        int maxX = Math.min(point.x + 1, Settings.GRID_SIZE - 1);
-        for (int i = minX; i <= maxX; i++) {
-            Point p = getPointFromPlayableCoordinates(i, point.y);
-            if(p != null) {
-                surroundingX.add(p);
+        // BONUS CROSS FIRE, if it is worth it
+        if(mAvailablesBonuses.contains(Bonus.Type.BOMB)) {
+            int center = mBombPlanner.plan(played);
+            if(center != -1) {
+                mSelectedBonus = Bonus.Type.BOMB;
+                mAvailablesBonuses.remove(mSelectedBonus);
+                cell = center;
             }
         }
-        return surroundingX;
+
+        return new Point(BitBoard.getX(cell), BitBoard.getY(cell));
     }
 
     /**
-     * Method returning the empty cells surrounding the given Point on the Y axis
-     * @param point
+     * Method playing a random cell not played yet (the weak move)
      * @return
      */
-    private ArrayList<Point> getSurroundingY(Point point) {
-        ArrayList<Point> surroundingY = new ArrayList<>();
-        int minY = Math.max(point.y - 1, 0);
-        int maxY = Math.min(point.y + 1, Settings.GRID_SIZE - 1);
-        for (int i = minY; i <= maxY; i++) {
-            Point p = getPointFromPlayableCoordinates(point.x, i);
-            if(p != null) {
-                surroundingY.add(p);
-            }
-        }
-        return surroundingY;
+    Point playRandom() {
+        // AI Use REPLAY Bonus if Possible
+        updateSelectedBonus();
+        // Any cell not played
+        mGameControler.getAvailableMask(mBuffer);
+        int cell = mBuffer.getSetBit(mRandom.nextInt(mBuffer.count()));
+        return new Point(BitBoard.getX(cell), BitBoard.getY(cell));
     }
 
-    /**
-     * Set the Surrounding Coordinates of the Point in mSurroudingCoordinates
-     * @param point
-     */
-    private void getSurroundingCoordinates(Point point) {
-
-        int[] tempX = new int[4];
-        int[] tempY = new int[4];
-
-        int nordX = point.x;
-        tempX[0] = nordX;
-
-        int nordY = Math.max(point.y - 1, 0);
-        tempY[0] = nordY;
-
-        int sudX = point.x;
-        tempX[1] = sudX;
-
-        int sudY = Math.min(point.y + 1, Settings.GRID_SIZE - 1);
-        tempY[1] = sudY;
-
-        int ouestX = Math.max(point.x - 1, 0);
-        tempX[2] = ouestX;
-
-        int ouestY = point.y;
-        tempY[2] = ouestY;
-
-        int estX = Math.min(point.x + 1, Settings.GRID_SIZE - 1);
-        tempX[3] = estX;
-
-        int estY = point.y;
-        tempY[3] = estY;
-
-        int row = 0;
-        int column = 0;
-
-        for (int i = 0; i < tempX.length; i++) {
-            //vérifier qu'ils soient pas joués (utiliser la méthode mController , alreadyplayed)
-            if (!mGameControler.alreadyPlayed(tempX[column], tempY[row])) {
-                //ne pas rajouter au tableau si deja dans le tableau
-                Point p = getPointFromPlayableCoordinates(tempX[column], tempY[row]);
-                if (p != null) {
-                    //rajouter au tableau les dispos
-                    mSurroudingCoordinates.add(p);
-                }
-            }
-            row++;
-            column++;
-        }
+    private static int getIndex(Point point) {
+        return BitBoard.index(point.x, point.y);
     }
 
     /**
-     * Get the Point from mPlayableCoordinates (avoiding duplicates)
-     * @param x
-     * @param y
+     * Method returning the Set of cells based on the probability density:
+     * the playable cells whose density is close to the highest one
+     * @param playableCoordinates the cells the Strategy can play
      * @return
      */
-    private Point getPointFromPlayableCoordinates(int x, int y) {
-        Point point = new Point(x, y);
-        for (Point p : mPlayableCoordinates) {
-            if (p.equals(point)) {
-                mPlayableCoordinates.remove(p);
-                return p;
+    CellSet getProbableCells(CellSet playableCoordinates) {
+        CellSet probablePoints = new CellSet();
+        float threshold = mDensityMap.getMaxDensity(mGameControler.getPlayedMask()) * PROBABLE_DENSITY_RATIO;
+        for(int i = 0; i < playableCoordinates.size(); i++) {
+            int cell = playableCoordinates.get(i);
+            if(mDensityMap.getDensity(cell) >= threshold) {
+                probablePoints.add(cell);
             }
         }
-        return null;
-    }
-
-    /**
-     * Get (and Delete) a Random Point from the Point's Array
-     * @param array
-     * @return
-     */
-    private Point getRandomPoint(ArrayList<Point> array) {
-        int index = (int)(Math.random() * (array.size() - 1));
-        Point returnedPoint = array.get(index);
-        array.remove(index);
-        return returnedPoint;
+        return probablePoints;
     }
 
     /**
-     * Method returning an ArrayList of Points based on the empty cells' count
-     * @return
+     * Method returning the most probable result of a hit on the cell: the Shape with the highest
+     * density there, DROWN if it is its last cell, VICTORY if it is the last Shape alive
+     *
+     * @param point the played coordinates
+     * @return the Result, null if no Shape can be on the cell
      */
-    private ArrayList<Point> getProbablePoints(){
-        ArrayList<Point> probablePoints = new ArrayList<>();
-        // Try to find the points with at least 6 empty cells around it
-        for(Point p : mPlayableCoordinates) {
-            int minX = Math.max(p.x - 1, 0);
-            int maxX = Math.min(p.x + 1, Settings.GRID_SIZE - 1);
-            int minY = Math.max(p.y - 1, 0);
-            int maxY = Math.min(p.y + 1, Settings.GRID_SIZE - 1);
-            int count = 0;
-            for (int i = minX; i <= maxX; i++) {
-                for (int j = minY; j <= maxY; j++) {
-                    if(!mGameControler.alreadyPlayed(i,j)) {
-                        count++ ;
-                    }
-                }
-            }
-            if(count >= 6) {
-                probablePoints.add(p);
-            }
-        }
-        // If non empty return the points
-        if(probablePoints.size() != 0) {
-            return probablePoints;
-        }
-        // If empty we try with less surrounding empty cells
-        else {
-            for(Point p : mPlayableCoordinates) {
-                ArrayList<Point> surrondingFreeCells = mGameControler.getSurrondingcoordinates(p.x, p.y);
-                if(surrondingFreeCells.size() >= 3) {
-                    probablePoints.add(p);
-                }
-            }
-            return probablePoints;
-        }
+    public Result getProbableHit(Point point) {
+        int cell = BitBoard.index(point.x, point.y);
+        int best = NONE;
+        float bestDensity = 0;
+        for (int shape = 0; shape < mDensityMap.getShapesCount(); shape++) {
+            float density = mDensityMap.getShapeDensity(shape, cell);
+            if (density > bestDensity) {
+                bestDensity = density;
+                best = shape;
+            }
+        }
+        if (best == NONE) {
+            return null;
+        }
+        ShapeCatalog catalog = mGameControler.getCatalog();
+        if (mGameControler.getHitMask(best).count() + 1 < catalog.getSize(best)) {
+            return new Result(point.x, point.y, best, TOUCHED, null);
+        }
+        // Drown: is it the last one ?
+        int hits = mGameControler.getHitMask().count() + 1;
+        return new Result(point.x, point.y, best, hits == catalog.getFleetSize() ? VICTORY : DROWN, null);
     }
 
     /**
-     * Method returning the AI's Game Controller;
+     * Method returning the AI's knowledge of the Player's Map (the Storage Map);
      * @return
      */
     public GameController getGameController() {
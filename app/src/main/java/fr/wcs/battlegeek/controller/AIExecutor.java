@@ -0,0 +1,241 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import fr.wcs.battlegeek.model.Bonus;
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+
+/**
+ * Executor running the AI off the UI Thread
+ *
+ * The AI's moves and results are processed in order on a dedicated background Thread, the moves
+ * are posted back to the UI Thread.
+ *
+ * While the shot's animation plays, the AI speculates on its result: it computes, on copies of
+ * its knowledge, its next move after a miss and after the most probable hit. When the real result
+ * comes, the matching branch replaces the AI and the other one is discarded. When no branch
+ * matches, the next move is computed right away from the real result. Either way, the next move
+ * is ready before the animation ends.
+ *
+ * The branches share the AI's Items' Map, guarded by itself: the Player's shots never wait for
+ * the speculation, and they reach the branch which replaces the AI.
+ */
+public class AIExecutor {
+    private static final String TAG = Settings.TAG;
+
+    /**
+     * Interface receiving the AI's moves on the UI Thread
+     */
+    public interface OnPlayListener {
+        void onPlay(Point point, Bonus.Type selectedBonus);
+
+        /**
+         * Called before onPlay when the AI used its Move Bonus
+         * @param shape the moved Shape's index
+         */
+        void onMove(int shape);
+    }
+
+    /**
+     * A move computed in advance: the expected result, the AI after it, and its next move
+     */
+    private static class Branch {
+        private Result mResult;
+        private AI mAI;
+        private Point mPoint;
+        private Bonus.Type mSelectedBonus;
+
+        private boolean matches(Result result) {
+            return mResult.getX() == result.getX() && mResult.getY() == result.getY()
+                    && mResult.getType() == result.getType() && mResult.getShape() == result.getShape();
+        }
+    }
+
+    private ExecutorService mExecutor;
+    private Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Guards the AI's knowledge, read from the UI Thread (Cross Fire's footprint)
+    private final Object mLock = new Object();
+    private volatile AI mAI;
+
+    // Speculative branches of the last move, and the move ready for the next play
+    private ArrayList<Branch> mBranches = new ArrayList<>();
+    private Branch mNext = null;
+    private Bonus.Type mLastSelectedBonus = null;
+
+    /**
+     * Constructor
+     * @param ai the configured AI (Level, Player's Map...)
+     */
+    public AIExecutor(AI ai) {
+        mAI = ai;
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AIExecutor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Method for the Player to Shot the AI
+     * @param x
+     * @param y
+     * @return
+     */
+    public Result shot(int x, int y) {
+        return mAI.shot(x, y);
+    }
+
+    /**
+     * Method returning the cells of the AI's Cross Fire footprint not played yet
+     * @param point the Cross Fire's center
+     * @return
+     */
+    public ArrayList<Point> getSurrondingcoordinates(Point point) {
+        synchronized (mLock) {
+            return mAI.getGameController().getSurrondingcoordinates(point);
+        }
+    }
+
+    /**
+     * Method computing the AI's move in the background, the move is posted to the listener
+     * @param listener
+     */
+    public void play(final OnPlayListener listener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Point point;
+                final Bonus.Type selectedBonus;
+                final int movedShape;
+                synchronized (mLock) {
+                    // The move does not change the shot: the AI's Map is not its knowledge
+                    movedShape = mAI.moveShape();
+                    if (mNext != null) {
+                        point = mNext.mPoint;
+                        selectedBonus = mNext.mSelectedBonus;
+                        mNext = null;
+                    }
+                    else {
+                        point = mAI.play();
+                        selectedBonus = mAI.getSelectedBonus();
+                    }
+                    mLastSelectedBonus = selectedBonus;
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (movedShape != ShapeCatalog.NONE) {
+                            listener.onMove(movedShape);
+                        }
+                        listener.onPlay(point, selectedBonus);
+                    }
+                });
+                speculate(point, selectedBonus);
+            }
+        });
+    }
+
+    /**
+     * Method computing the branches of the move while its result is unknown
+     * Only the background Thread changes the AI's knowledge: the branches are computed without
+     * the lock, on their own copies
+     * The Cross Fire gives several results, so it is not speculated
+     */
+    private void speculate(Point point, Bonus.Type selectedBonus) {
+        mBranches.clear();
+        if (selectedBonus == Bonus.Type.BOMB) {
+            return;
+        }
+        Branch miss = branch(mAI, new Result(point.x, point.y, ShapeCatalog.NONE, Result.Type.MISSED, null));
+        if (miss != null) {
+            mBranches.add(miss);
+        }
+        Result probableHit = mAI.getProbableHit(point);
+        if (probableHit != null) {
+            Branch hit = branch(mAI, probableHit);
+            if (hit != null) {
+                mBranches.add(hit);
+            }
+        }
+    }
+
+    /**
+     * Method computing, on a copy of the AI's knowledge, its next move after the expected result
+     * @param ai the AI to copy
+     * @param result the expected result
+     * @return the branch, null if there is no next move
+     */
+    private Branch branch(AI ai, Result result) {
+        if (result.getType() == Result.Type.VICTORY) {
+            return null;
+        }
+        Branch branch = new Branch();
+        branch.mResult = result;
+        branch.mAI = new AI(ai);
+        try {
+            branch.mAI.setResult(result);
+            branch.mPoint = branch.mAI.play();
+        } catch (RuntimeException e) {
+            // Only a guess: the real move will be computed from the real result
+            Log.w(TAG, "branch: speculative move failed", e);
+            return null;
+        }
+        branch.mSelectedBonus = branch.mAI.getSelectedBonus();
+        return branch.mPoint == null ? null : branch;
+    }
+
+    /**
+     * Method giving the shot's result to the AI, in the background
+     * @param result
+     */
+    public void setResult(final Result result) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (mLock) {
+                    mNext = null;
+                    for (Branch branch : mBranches) {
+                        if (branch.matches(result)) {
+                            mAI = branch.mAI;
+                            mNext = branch;
+                            break;
+                        }
+                    }
+                    mBranches.clear();
+                    if (mNext != null) {
+                        return;
+                    }
+                    mAI.setResult(result);
+                    // Next move from the real result (Cross Fire: more results to come)
+                    if (mLastSelectedBonus != Bonus.Type.BOMB && result.getType() != Result.Type.VICTORY) {
+                        mNext = new Branch();
+                        mNext.mPoint = mAI.play();
+                        mNext.mSelectedBonus = mAI.getSelectedBonus();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Method stopping the background Thread and the pending moves
+     */
+    public void release() {
+        mExecutor.shutdownNow();
+        mHandler.removeCallbacksAndMessages(null);
+    }
+}
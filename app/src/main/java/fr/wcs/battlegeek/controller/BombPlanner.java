@@ -0,0 +1,128 @@
+package fr.wcs.battlegeek.controller;
+
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Planner of the Cross Fire Bonus (BOMB)
+ *
+ * Each candidate center is scored over its footprint (the center and its 4 direct neighbours,
+ * like GameController.getSurrondingcoordinates) by the expected count of hits plus the expected
+ * information gain: the entropy of each cell's result (missed, or the touched Shape).
+ * The cells' probabilities and entropies are computed once, then summed over the footprints
+ * in a single pass over the centers.
+ *
+ * The Bomb is worth dropping only when the best footprint's score clears the threshold,
+ * otherwise the AI keeps it for later.
+ */
+public class BombPlanner {
+
+    // Default score needed to drop the Bomb
+    public static final float DEFAULT_THRESHOLD = 2.5f;
+
+    // Weight of the information gain (bits) in the score
+    public static final float INFORMATION_WEIGHT = 0.5f;
+
+    private static final int SIZE = Settings.GRID_SIZE;
+    private static final float LN2 = (float) Math.log(2);
+
+    private DensityMap mDensityMap;
+    private float mThreshold = DEFAULT_THRESHOLD;
+
+    // Per cell values: hit probability and score, 0 for played cells
+    private float[] mProbabilities = new float[BitBoard.CELLS];
+    private float[] mValues = new float[BitBoard.CELLS];
+
+    // Last plan
+    private float mScore;
+    private float mExpectedHits;
+
+    /**
+     * Constructor
+     * @param densityMap the Density Map of the enemy's Tetrominos
+     */
+    public BombPlanner(DensityMap densityMap) {
+        mDensityMap = densityMap;
+    }
+
+    /**
+     * Method setting the score needed to drop the Bomb
+     * @param threshold
+     */
+    public void setThreshold(float threshold) {
+        mThreshold = threshold;
+    }
+
+    /**
+     * Method returning the best center for the Bomb
+     * @param played the played cells' mask
+     * @return the center's index, -1 if the Bomb should be kept for later
+     */
+    public int plan(BitBoard played) {
+        // Probability and entropy of each cell
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (played.get(cell)) {
+                mProbabilities[cell] = 0;
+                mValues[cell] = 0;
+                continue;
+            }
+            float hit = 0;
+            float entropy = 0;
+            for (int shape = 0; shape < mDensityMap.getShapesCount(); shape++) {
+                float p = mDensityMap.getShapeDensity(shape, cell);
+                hit += p;
+                entropy -= p > 0 ? p * Math.log(p) : 0;
+            }
+            hit = Math.min(hit, 1);
+            float miss = 1 - hit;
+            entropy -= miss > 0 ? miss * Math.log(miss) : 0;
+            mProbabilities[cell] = hit;
+            mValues[cell] = hit + INFORMATION_WEIGHT * Math.max(entropy, 0) / LN2;
+        }
+
+        // Sum over the footprints
+        int best = -1;
+        mScore = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int x = BitBoard.getX(cell);
+            int y = BitBoard.getY(cell);
+            float score = mValues[cell];
+            if (x > 0) score += mValues[cell - 1];
+            if (x < SIZE - 1) score += mValues[cell + 1];
+            if (y > 0) score += mValues[cell - SIZE];
+            if (y < SIZE - 1) score += mValues[cell + SIZE];
+            if (score > mScore) {
+                mScore = score;
+                best = cell;
+            }
+        }
+        if (best == -1 || mScore < mThreshold) {
+            return -1;
+        }
+
+        int x = BitBoard.getX(best);
+        int y = BitBoard.getY(best);
+        mExpectedHits = mProbabilities[best];
+        if (x > 0) mExpectedHits += mProbabilities[best - 1];
+        if (x < SIZE - 1) mExpectedHits += mProbabilities[best + 1];
+        if (y > 0) mExpectedHits += mProbabilities[best - SIZE];
+        if (y < SIZE - 1) mExpectedHits += mProbabilities[best + SIZE];
+        return best;
+    }
+
+    /**
+     * Method returning the score of the best footprint of the last plan
+     * @return
+     */
+    public float getScore() {
+        return mScore;
+    }
+
+    /**
+     * Method returning the expected count of hits of the last planned Bomb
+     * @return
+     */
+    public float getExpectedHits() {
+        return mExpectedHits;
+    }
+}
@@ -0,0 +1,81 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+
+import fr.wcs.battlegeek.model.ShapeCatalog;
+
+/**
+ * Level III's strong Strategy: play a Block of the Player's Map not touched yet
+ *
+ * The Blocks are read from the Player's Map given to the AI, at the first move. Without
+ * the Player's Map, or when all its Blocks are played, the Level II's Strategy plays.
+ */
+public class CheatStrategy extends ProbableStrategy {
+
+    // The Player's Blocks, null until the first move (not modified: shared by the copies)
+    private ArrayList<Point> mBlocks = null;
+
+    public CheatStrategy() {
+    }
+
+    private CheatStrategy(CheatStrategy other) {
+        super(other);
+        mBlocks = other.mBlocks;
+    }
+
+    /**
+     * Method returning the Blocks of the Player's Map, Shape after Shape
+     * @param playerMap the Player's Map, null if not given
+     * @return
+     */
+    static ArrayList<Point> getBlocks(char[][] playerMap) {
+        ArrayList<Point> blocks = new ArrayList<>();
+        if (playerMap == null) {
+            return blocks;
+        }
+        ShapeCatalog catalog = ShapeCatalog.getFleet();
+        for (int shape = 0; shape < catalog.getShapesCount(); shape++) {
+            for (int i = 0; i < playerMap.length; i++) {
+                for (int j = 0; j < playerMap[i].length; j++) {
+                    if (catalog.indexOf(playerMap[i][j]) == shape) {
+                        blocks.add(new Point(j, i));
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    @Override
+    public void reset(AI ai) {
+        super.reset(ai);
+        mBlocks = null;
+    }
+
+    @Override
+    public Point play(AI ai) {
+        if (mBlocks == null) {
+            mBlocks = getBlocks(ai.getPlayerMap());
+        }
+        GameController gameController = ai.getGameController();
+        for (Point point : mBlocks) {
+            if(!gameController.alreadyPlayed(point)) {
+                // AI Use REPLAY Bonus if Possible
+                ai.updateSelectedBonus();
+                mLastPlayedCoordinates = point;
+                mPlayableCoordinates.remove(getIndex(point));
+                mProbableCoordinates.remove(getIndex(point));
+                return mLastPlayedCoordinates;
+            }
+        }
+        // No Player's Map
+        return super.play(ai);
+    }
+
+    @Override
+    public ShotStrategy copy() {
+        return new CheatStrategy(this);
+    }
+}
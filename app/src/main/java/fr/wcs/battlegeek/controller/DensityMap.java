@@ -0,0 +1,456 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.Arrays;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Probability Density of the enemy's Tetrominos
+ *
+ * For each remaining Shape, the placements consistent with the Storage Map are counted:
+ * a placement is consistent if it avoids the missed cells and the cells touched on other Shapes,
+ * and if it covers all the cells already touched on its own Shape.
+ * The density of a cell is the sum, over the Shapes, of the probability that the Shape covers it.
+ *
+ * The counters are updated by delta with update(): a shot only removes the placements it
+ * invalidates, each placement is removed at most once in a game.
+ * The placements can be weighted by a prior (setWeights()), the counts are then weighted sums.
+ *
+ * A copy shares the large arrays (placements, counts, contributions) with the original, each
+ * side copies an array only before writing it (copy on write): a speculative branch only pays
+ * for the Shapes its shots change.
+ */
+public class DensityMap {
+
+    private static final float EPSILON = 1e-4f;
+
+    private PlacementAtlas mAtlas;
+
+    // Consistent placements, and their weights (prior over the placements)
+    private boolean[] mValid;
+    private float[] mWeights;
+
+    // Weighted count of consistent placements covering each cell, and total, for each Shape
+    private float[][] mCounts;
+    private float[] mTotals;
+
+    // Touched cells of each Shape, and drown Shapes
+    private int[] mHitsCounts;
+    private boolean[] mDrown;
+
+    // Processed cells
+    private BitBoard mPlayed = new BitBoard();
+
+    // Density of each cell, and contribution of each Shape, refreshed only for modified Shapes
+    private float[] mDensity = new float[BitBoard.CELLS];
+    private float[][] mContributions;
+    private boolean[] mDirty;
+
+    // Arrays shared with a copy, to copy before writing
+    private boolean mValidShared = false;
+    private boolean mWeightsShared = false;
+    private boolean mDensityShared = false;
+    private boolean[] mCountsShared;
+    private boolean[] mContributionsShared;
+
+    // Buffers
+    private BitBoard mAvailable = new BitBoard();
+    private int[] mCandidates = new int[BitBoard.CELLS];
+    private float[] mScores = new float[BitBoard.CELLS];
+
+    /**
+     * Constructor: all the placements of the Fleet's Shapes are consistent
+     */
+    public DensityMap() {
+        mAtlas = PlacementAtlas.getInstance();
+        int shapesCount = mAtlas.getShapesCount();
+        mCounts = new float[shapesCount][BitBoard.CELLS];
+        mTotals = new float[shapesCount];
+        mHitsCounts = new int[shapesCount];
+        mDrown = new boolean[shapesCount];
+        mContributions = new float[shapesCount][BitBoard.CELLS];
+        mDirty = new boolean[shapesCount];
+        mCountsShared = new boolean[shapesCount];
+        mContributionsShared = new boolean[shapesCount];
+        mValid = new boolean[mAtlas.getPlacementsCount()];
+        mWeights = new float[mAtlas.getPlacementsCount()];
+        Arrays.fill(mWeights, 1);
+        reset();
+    }
+
+    /**
+     * Copy Constructor: the large arrays are shared until written
+     * @param other the Density Map to copy
+     */
+    public DensityMap(DensityMap other) {
+        // The pending contributions are computed once, for both sides
+        other.refresh();
+        mAtlas = other.mAtlas;
+        int shapesCount = mAtlas.getShapesCount();
+        mCounts = new float[shapesCount][];
+        mContributions = new float[shapesCount][];
+        mCountsShared = new boolean[shapesCount];
+        mContributionsShared = new boolean[shapesCount];
+        mValid = other.mValid;
+        mWeights = other.mWeights;
+        mDensity = other.mDensity;
+        mValidShared = other.mValidShared = true;
+        mWeightsShared = other.mWeightsShared = true;
+        mDensityShared = other.mDensityShared = true;
+        for (int shape = 0; shape < mCounts.length; shape++) {
+            mCounts[shape] = other.mCounts[shape];
+            mContributions[shape] = other.mContributions[shape];
+            mCountsShared[shape] = other.mCountsShared[shape] = true;
+            mContributionsShared[shape] = other.mContributionsShared[shape] = true;
+        }
+        mTotals = other.mTotals.clone();
+        mHitsCounts = other.mHitsCounts.clone();
+        mDrown = other.mDrown.clone();
+        mPlayed.set(other.mPlayed);
+        mDirty = other.mDirty.clone();
+    }
+
+    private void ownValid() {
+        if (mValidShared) {
+            mValid = mValid.clone();
+            mValidShared = false;
+        }
+    }
+
+    private void ownWeights() {
+        if (mWeightsShared) {
+            mWeights = mWeights.clone();
+            mWeightsShared = false;
+        }
+    }
+
+    private void ownDensity() {
+        if (mDensityShared) {
+            mDensity = mDensity.clone();
+            mDensityShared = false;
+        }
+    }
+
+    private float[] ownCounts(int shape) {
+        if (mCountsShared[shape]) {
+            mCounts[shape] = mCounts[shape].clone();
+            mCountsShared[shape] = false;
+        }
+        return mCounts[shape];
+    }
+
+    private float[] ownContributions(int shape) {
+        if (mContributionsShared[shape]) {
+            mContributions[shape] = mContributions[shape].clone();
+            mContributionsShared[shape] = false;
+        }
+        return mContributions[shape];
+    }
+
+    /**
+     * Method setting the weights of the placements, and restoring all the placements
+     * @param weights the weight of each placement of the Placement Atlas, null for uniform weights
+     */
+    public void setWeights(float[] weights) {
+        ownWeights();
+        if (weights == null) {
+            Arrays.fill(mWeights, 1);
+        }
+        else {
+            System.arraycopy(weights, 0, mWeights, 0, mWeights.length);
+        }
+        reset();
+    }
+
+    /**
+     * Method restoring all the placements
+     */
+    public void reset() {
+        ownValid();
+        Arrays.fill(mValid, true);
+        Arrays.fill(mTotals, 0);
+        Arrays.fill(mHitsCounts, 0);
+        Arrays.fill(mDrown, false);
+        for (int shape = 0; shape < mCounts.length; shape++) {
+            Arrays.fill(ownCounts(shape), 0);
+        }
+        for (int p = 0; p < mValid.length; p++) {
+            int shape = mAtlas.getShape(p);
+            for (int cell : mAtlas.getCells(p)) {
+                mCounts[shape][cell] += mWeights[p];
+            }
+            mTotals[shape] += mWeights[p];
+        }
+        mPlayed.clear();
+        Arrays.fill(mDirty, true);
+    }
+
+    /**
+     * Method computing the density from the Game Controller's Storage Map
+     * @param controller the Game Controller storing the shots' results
+     */
+    public void compute(GameController controller) {
+        reset();
+        BitBoard played = controller.getPlayedMask();
+        char[][] storageMap = controller.getStorageMap();
+        for (int cell = played.nextSetBit(0); cell != -1; cell = played.nextSetBit(cell + 1)) {
+            char symbol = storageMap[BitBoard.getY(cell)][BitBoard.getX(cell)];
+            update(cell, mAtlas.getCatalog().indexOf(symbol));
+        }
+    }
+
+    /**
+     * Method updating the counters with the shot's result
+     * @param result
+     */
+    public void update(Result result) {
+        Result.Type type = result.getType();
+        int shape = type == Result.Type.MISSED || type == Result.Type.BONUS
+                ? NONE : result.getShape();
+        update(BitBoard.index(result.getX(), result.getY()), shape);
+    }
+
+    /**
+     * Method updating the counters with the shot on the cell
+     * @param cell the cell's index
+     * @param shape the touched Shape's index, NONE if missed
+     */
+    public void update(int cell, int shape) {
+        if (mPlayed.get(cell)) {
+            return;
+        }
+        mPlayed.set(cell);
+
+        // Missed: no Shape can cover the cell
+        if (shape == NONE) {
+            for (int p : mAtlas.getPlacements(cell)) {
+                invalidate(p);
+            }
+            return;
+        }
+
+        // Touched: only the Shape can cover the cell...
+        int touched = shape;
+        for (int p : mAtlas.getPlacements(cell)) {
+            if (mAtlas.getShape(p) != touched) {
+                invalidate(p);
+            }
+        }
+        // ... and the Shape must cover it
+        long low = cell < 64 ? 1L << cell : 0;
+        long high = cell < 64 ? 0 : 1L << (cell - 64);
+        for (int p = mAtlas.getShapeStart(touched); p < mAtlas.getShapeEnd(touched); p++) {
+            if ((mAtlas.getLow(p) & low) == 0 && (mAtlas.getHigh(p) & high) == 0) {
+                invalidate(p);
+            }
+        }
+
+        // Drown: nothing left to find for this Shape
+        mHitsCounts[touched]++;
+        if (mHitsCounts[touched] >= mAtlas.getShapeSize(touched)) {
+            mDrown[touched] = true;
+            mDirty[touched] = true;
+        }
+    }
+
+    /**
+     * Method removing the placement from the counters
+     * @param placement
+     */
+    private void invalidate(int placement) {
+        if (!mValid[placement]) {
+            return;
+        }
+        ownValid();
+        mValid[placement] = false;
+        int shape = mAtlas.getShape(placement);
+        float weight = mWeights[placement];
+        float[] counts = ownCounts(shape);
+        for (int cell : mAtlas.getCells(placement)) {
+            counts[cell] -= weight;
+        }
+        mTotals[shape] -= weight;
+        mDirty[shape] = true;
+    }
+
+    /**
+     * Method refreshing the contributions of the modified Shapes
+     */
+    private void refresh() {
+        for (int shape = 0; shape < mCounts.length; shape++) {
+            if (!mDirty[shape]) {
+                continue;
+            }
+            mDirty[shape] = false;
+            ownDensity();
+            float[] contributions = ownContributions(shape);
+            // A drown Shape has nothing left to find, and an empty Shape should not happen,
+            // unless the enemy moved its Tetrominos (the sums may keep rounding errors)
+            float weight = mDrown[shape] || mTotals[shape] < EPSILON ? 0 : 1f / mTotals[shape];
+            float[] counts = mCounts[shape];
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                float contribution = counts[cell] < EPSILON ? 0 : counts[cell] * weight;
+                mDensity[cell] += contribution - contributions[cell];
+                contributions[cell] = contribution;
+            }
+        }
+    }
+
+    /**
+     * Method returning the density of the cell
+     * @param cell the cell's index
+     * @return the expected count of Tetromino's Blocks on the cell
+     */
+    public float getDensity(int cell) {
+        refresh();
+        return mDensity[cell];
+    }
+
+    /**
+     * Method returning the count of the Fleet's Shapes
+     * @return
+     */
+    public int getShapesCount() {
+        return mCounts.length;
+    }
+
+    /**
+     * Method returning the probability that the Shape covers the cell
+     * @param shape the Shape's index
+     * @param cell the cell's index
+     * @return
+     */
+    public float getShapeDensity(int shape, int cell) {
+        refresh();
+        return mContributions[shape][cell];
+    }
+
+    /**
+     * Method returning the entropy of the shot's outcome on the cell
+     * The outcomes are a miss, or a touch revealing one of the Shapes: the entropy is the
+     * expected information gained on the enemy's layout
+     * @param cell the cell's index
+     * @return the entropy, in nats
+     */
+    public float getEntropy(int cell) {
+        refresh();
+        return entropy(cell);
+    }
+
+    private float entropy(int cell) {
+        float entropy = 0;
+        float missed = 1;
+        for (int shape = 0; shape < mCounts.length; shape++) {
+            float probability = mContributions[shape][cell];
+            if (probability > EPSILON) {
+                entropy -= probability * Math.log(probability);
+                missed -= probability;
+            }
+        }
+        if (missed > EPSILON) {
+            entropy -= missed * Math.log(missed);
+        }
+        return entropy;
+    }
+
+    /**
+     * Method returning the highest density of the not played cells
+     * @param played the played cells' mask
+     * @return
+     */
+    public float getMaxDensity(BitBoard played) {
+        refresh();
+        mAvailable.set(played);
+        mAvailable.not();
+        float max = 0;
+        for (int cell = mAvailable.nextSetBit(0); cell != -1; cell = mAvailable.nextSetBit(cell + 1)) {
+            max = Math.max(max, mDensity[cell]);
+        }
+        return max;
+    }
+
+    /**
+     * Method returning the not played cell with the highest density,
+     * randomly chosen if several cells have the same density
+     * @param played the played cells' mask
+     * @return the cell's index, -1 if all the cells were played
+     */
+    public int getBestCell(BitBoard played) {
+        int count = getBestCells(played, mCandidates);
+        if (count == 0) {
+            return -1;
+        }
+        return mCandidates[(int) (Math.random() * count)];
+    }
+
+    /**
+     * Method storing the not played cells with the highest density in the array
+     * @param played the played cells' mask
+     * @param cells the array receiving the cells' indexes (BitBoard.CELLS long)
+     * @return the count of cells, 0 if all the cells were played
+     */
+    public int getBestCells(BitBoard played, int[] cells) {
+        return getBestCells(played, cells, false);
+    }
+
+    /**
+     * Method storing the not played cells with the highest densities in the array, the best first
+     * @param played the played cells' mask
+     * @param cells the array receiving the cells' indexes (at least count long)
+     * @param count the count of cells wanted
+     * @return the count of cells stored, less than count if fewer cells are not played
+     */
+    public int getTopCells(BitBoard played, int[] cells, int count) {
+        refresh();
+        mAvailable.set(played);
+        mAvailable.not();
+        int stored = 0;
+        for (int cell = mAvailable.nextSetBit(0); cell != -1; cell = mAvailable.nextSetBit(cell + 1)) {
+            float density = mDensity[cell];
+            if (stored == count && density <= mScores[stored - 1]) {
+                continue;
+            }
+            // Insertion in the cells sorted by density
+            int i = stored < count ? stored++ : stored - 1;
+            for (; i > 0 && mScores[i - 1] < density; i--) {
+                cells[i] = cells[i - 1];
+                mScores[i] = mScores[i - 1];
+            }
+            cells[i] = cell;
+            mScores[i] = density;
+        }
+        return stored;
+    }
+
+    /**
+     * Method storing the not played cells with the highest entropy in the array
+     * @param played the played cells' mask
+     * @param cells the array receiving the cells' indexes (BitBoard.CELLS long)
+     * @return the count of cells, 0 if all the cells were played
+     */
+    public int getBestEntropyCells(BitBoard played, int[] cells) {
+        return getBestCells(played, cells, true);
+    }
+
+    private int getBestCells(BitBoard played, int[] cells, boolean entropy) {
+        refresh();
+        mAvailable.set(played);
+        mAvailable.not();
+        float best = -1;
+        int count = 0;
+        for (int cell = mAvailable.nextSetBit(0); cell != -1; cell = mAvailable.nextSetBit(cell + 1)) {
+            float score = entropy ? entropy(cell) : mDensity[cell];
+            if (score > best) {
+                best = score;
+                count = 0;
+            }
+            if (score == best) {
+                cells[count++] = cell;
+            }
+        }
+        return count;
+    }
+}
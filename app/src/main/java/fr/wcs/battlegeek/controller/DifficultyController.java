@@ -0,0 +1,156 @@
+package fr.wcs.battlegeek.controller;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import fr.wcs.battlegeek.model.PlayerModel;
+import fr.wcs.battlegeek.model.Settings;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Dynamic Difficulty of an AI Level
+ *
+ * Between the games, the Player's win rate is estimated from its Statistics' ratio and from its
+ * recent results (an exponential average stored in the Shared Preferences, one entry per Player
+ * and per Level), both weighted by their count of games. The AI's target count of shots moves
+ * away from the calibrated one (see SkillTable) with the gap between this rate and the aimed one,
+ * plus an offset accumulating the gaps of each game (also stored), so the Player ends up winning
+ * half of its games whatever its level.
+ *
+ * During a game, the target follows the difference of progress between the Player and the AI,
+ * and the skill giving the target is read from the Level's curve: a few comparisons per move.
+ */
+public class DifficultyController {
+
+    // Player's win rate aimed
+    public static final float TARGET_WIN_RATE = 0.5f;
+
+    // Relative change of the target count of shots for a win rate of 100% (or 0%)
+    private static final float RATE_GAIN = 1f;
+
+    // Relative change of the target count of shots when the Player leads by its whole Fleet
+    private static final float LEAD_GAIN = 0.5f;
+
+    // Change of the offset of the target count of shots after each game, and its bounds
+    private static final float OFFSET_STEP = 0.04f;
+    private static final float OFFSET_MAX = 0.5f;
+
+    // Weight of the recent results in their exponential average
+    private static final float RECENT_DECAY = 0.3f;
+
+    // Maximal weight (in games) of the Statistics' ratio and of the recent results
+    private static final int RATIO_GAMES = 10;
+    private static final int RECENT_GAMES = 5;
+
+    // Weight (in games) of the target win rate, before any game
+    private static final int PRIOR_GAMES = 2;
+
+
+    private static final String RATE_TAG = "Rate";
+    private static final String GAMES_TAG = "Games";
+    private static final String OFFSET_TAG = "Offset";
+
+    private AI.Level mLevel;
+    private SharedPreferences mSharedPreferences;
+    private String mKey;
+
+    // Statistics' ratio of the Level, and its count of games
+    private float mRatio = TARGET_WIN_RATE;
+    private int mRatioGames = 0;
+
+    // Exponential average of the recent results, and its count of games
+    private float mRecentRate = TARGET_WIN_RATE;
+    private int mRecentGames = 0;
+
+    // Relative offset of the target count of shots
+    private float mOffset = 0;
+
+    // Target mean count of shots of the game
+    private volatile float mTargetShots;
+
+    // Cells of the Fleet: the Blocks of all its Shapes
+    private final int mFleetCells = PlacementAtlas.getInstance().getCatalog().getFleetSize();
+
+    /**
+     * Constructor loading the Player's recent results
+     * @param context the application's Context
+     * @param level a calibrated Level (see SkillTable)
+     */
+    public DifficultyController(Context context, AI.Level level) {
+        mLevel = level;
+        mSharedPreferences = context.getSharedPreferences(Settings.FILE_NAME, MODE_PRIVATE);
+        mKey = Settings.DIFFICULTY_TAG + mSharedPreferences.getString(Settings.UID, "") + level;
+        mRecentRate = mSharedPreferences.getFloat(mKey + RATE_TAG, TARGET_WIN_RATE);
+        mRecentGames = mSharedPreferences.getInt(mKey + GAMES_TAG, 0);
+        mOffset = mSharedPreferences.getFloat(mKey + OFFSET_TAG, 0);
+        updateTarget();
+    }
+
+    /**
+     * Method setting the Player's Statistics (loaded after the game's start)
+     * @param player
+     */
+    public void setPlayer(PlayerModel player) {
+        Integer ratio = player.getRatio().get(mLevel.toString());
+        Integer games = player.getGameParts().get(mLevel.toString());
+        if (ratio == null || games == null) {
+            return;
+        }
+        mRatio = ratio / 100f;
+        mRatioGames = games;
+        updateTarget();
+    }
+
+    /**
+     * Method recording the result of the game
+     * @param victory true if the Player won
+     */
+    public void addResult(boolean victory) {
+        mRecentRate += RECENT_DECAY * ((victory ? 1 : 0) - mRecentRate);
+        mRecentGames++;
+        mOffset += OFFSET_STEP * ((victory ? 1 : 0) - TARGET_WIN_RATE);
+        mOffset = Math.max(-OFFSET_MAX, Math.min(OFFSET_MAX, mOffset));
+        mSharedPreferences.edit()
+                .putFloat(mKey + RATE_TAG, mRecentRate)
+                .putInt(mKey + GAMES_TAG, mRecentGames)
+                .putFloat(mKey + OFFSET_TAG, mOffset)
+                .apply();
+        updateTarget();
+    }
+
+    /**
+     * Method returning the estimated Player's win rate
+     * @return
+     */
+    public float getWinRate() {
+        float ratioWeight = Math.min(mRatioGames, RATIO_GAMES);
+        float recentWeight = Math.min(mRecentGames, RECENT_GAMES);
+        return (PRIOR_GAMES * TARGET_WIN_RATE + ratioWeight * mRatio + recentWeight * mRecentRate)
+                / (PRIOR_GAMES + ratioWeight + recentWeight);
+    }
+
+    /**
+     * Method returning the AI's target mean count of shots, before the game
+     * @return
+     */
+    public float getTargetShots() {
+        return mTargetShots;
+    }
+
+    private void updateTarget() {
+        mTargetShots = SkillTable.TARGETS[mLevel.ordinal()]
+                * (1 - RATE_GAIN * (getWinRate() - TARGET_WIN_RATE) - mOffset);
+    }
+
+    /**
+     * Method returning the AI's skill for its next move
+     * @param aiHits the count of the Player's cells touched by the AI
+     * @param playerHits the count of the AI's cells touched by the Player
+     * @return the probability of the Level's strong move
+     */
+    public float getSkill(int aiHits, int playerHits) {
+        float lead = (float) (playerHits - aiHits) / mFleetCells;
+        return SkillTable.getSkill(mLevel, mTargetShots * (1 - LEAD_GAIN * lead));
+    }
+}
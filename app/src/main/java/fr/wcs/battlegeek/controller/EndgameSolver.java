@@ -0,0 +1,492 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.Arrays;
+
+import fr.wcs.battlegeek.utils.BitBoard;
+import fr.wcs.battlegeek.utils.Deadline;
+
+/**
+ * Exact Endgame Solver
+ *
+ * When only a few layouts of the remaining Shapes are consistent with the Storage Map, the
+ * solver enumerates them and searches the shot minimizing the expected count of remaining shots,
+ * each layout being equally likely.
+ * A shot splits the layouts by its result (missed, or the touched Shape), the search recurses
+ * on each part. The search states are memoized on the shot cells and the alive layouts, in an
+ * open addressing table: the search doesn't allocate, but when the table grows.
+ *
+ * The search gives up (solve() returns -1) when the Storage Map is not an endgame, or when the
+ * nodes budget or the deadline is reached before a first shot is evaluated, the AI then falls
+ * back to its heuristics. Otherwise the best shot evaluated so far is returned.
+ */
+public class EndgameSolver {
+
+    // Endgame Thresholds: the layouts are stored in a long, the unknown cells too
+    public static final int MAX_LAYOUTS = 64;
+    public static final int MAX_CELLS = 24;
+
+    public static final int DEFAULT_NODE_BUDGET = 5000;
+
+    // Initial capacity of the memo table (a power of 2)
+    private static final int MEMO_CAPACITY = 1024;
+
+    private PlacementAtlas mAtlas = PlacementAtlas.getInstance();
+    private int mShapesCount = mAtlas.getShapesCount();
+    private int mNodeBudget = DEFAULT_NODE_BUDGET;
+
+    // Consistent placements of each remaining Shape
+    private int[][] mPlacements = new int[mShapesCount][];
+    private int[] mPlacementsCounts = new int[mShapesCount];
+    private int[] mRemainingShapes = new int[mShapesCount];
+    private int mRemainingCount;
+
+    // Enumerated layouts: their remaining placements
+    private int[][] mLayouts = new int[MAX_LAYOUTS][mShapesCount];
+    private int mLayoutsCount;
+    private int[] mLayout = new int[mShapesCount];
+
+    // Unknown cells (global indexes), and for each layout: its unknown cells (local mask)
+    // and the Shape (index + 1) on each unknown cell
+    private int[] mCells = new int[MAX_CELLS];
+    private int mCellsCount;
+    private long[] mLayoutMasks = new long[MAX_LAYOUTS];
+    private byte[][] mLayoutShapes = new byte[MAX_LAYOUTS][MAX_CELLS];
+
+    // Search
+    // Memo table: the alive layouts (0 for an empty slot), the shot cells and the value
+    private long[] mMemoAlive = new long[MEMO_CAPACITY];
+    private long[] mMemoShot = new long[MEMO_CAPACITY];
+    private float[] mMemoValues = new float[MEMO_CAPACITY];
+    private int mMemoSize;
+    private int mNodes;
+    private boolean mAborted;
+    private Deadline mDeadline = Deadline.NONE;
+    private int[] mOrder = new int[MAX_CELLS];
+    private int[] mHits = new int[MAX_CELLS];
+    private float mExpectedShots;
+    // Results and bounds of the shots, by depth (the count of shot cells)
+    private long[][] mResults = new long[MAX_CELLS][mShapesCount + 1];
+    private float[][] mBounds = new float[MAX_CELLS][mShapesCount + 1];
+
+    // Buffers
+    private BitBoard mMisses = new BitBoard();
+    private BitBoard mBlocked = new BitBoard();
+    private BitBoard mUnknown = new BitBoard();
+
+    public EndgameSolver() {
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            mPlacements[shape] = new int[mAtlas.getShapeEnd(shape) - mAtlas.getShapeStart(shape)];
+        }
+    }
+
+    /**
+     * Method setting the maximal count of search nodes
+     * @param nodeBudget
+     */
+    public void setNodeBudget(int nodeBudget) {
+        mNodeBudget = nodeBudget;
+    }
+
+    /**
+     * Method returning the nodes budget of a search
+     * @return
+     */
+    public int getNodeBudget() {
+        return mNodeBudget;
+    }
+
+    /**
+     * Method returning the expected count of remaining shots of the last solved endgame
+     * @return
+     */
+    public float getExpectedShots() {
+        return mExpectedShots;
+    }
+
+    /**
+     * Method checking if the last search was complete (not stopped by the deadline or the nodes
+     * budget), so its shot is optimal
+     * @return
+     */
+    public boolean isComplete() {
+        return !mAborted;
+    }
+
+    /**
+     * Method returning the optimal shot for the Game Controller's Storage Map
+     * @param controller the Game Controller storing the shots' results
+     * @return the cell's index, -1 if not an endgame or if the nodes budget was exceeded
+     */
+    public int solve(GameController controller) {
+        return solve(controller, Deadline.NONE);
+    }
+
+    /**
+     * Method returning the optimal shot for the Game Controller's Storage Map
+     * The shots are evaluated from the most probable hit, so when the deadline or the nodes
+     * budget is reached, the best shot evaluated so far is returned
+     * @param controller the Game Controller storing the shots' results
+     * @param deadline the move's deadline
+     * @return the cell's index, -1 if not an endgame or if no shot could be evaluated in time
+     */
+    public int solve(GameController controller, Deadline deadline) {
+        if (!enumerate(controller)) {
+            return -1;
+        }
+
+        if (mMemoSize > 0) {
+            Arrays.fill(mMemoAlive, 0);
+            mMemoSize = 0;
+        }
+        mNodes = 0;
+        mAborted = false;
+        mDeadline = deadline;
+        long alive = mLayoutsCount == 64 ? -1L : (1L << mLayoutsCount) - 1;
+        long candidates = getCandidates(alive, 0);
+        // Only one possible layout left: any of its cells
+        if (candidates == 0) {
+            long union = 0;
+            for (int l = 0; l < mLayoutsCount; l++) {
+                union |= mLayoutMasks[l];
+            }
+            if (union == 0) {
+                return -1;
+            }
+            mExpectedShots = Long.bitCount(union);
+            return mCells[Long.numberOfTrailingZeros(union)];
+        }
+
+        // Sort the shots by hit probability
+        int count = 0;
+        for (long c = candidates; c != 0; c &= c - 1) {
+            int cell = Long.numberOfTrailingZeros(c);
+            int hits = 0;
+            for (int l = 0; l < mLayoutsCount; l++) {
+                hits += (int) ((mLayoutMasks[l] >>> cell) & 1);
+            }
+            int i = count++;
+            while (i > 0 && mHits[i - 1] < hits) {
+                mOrder[i] = mOrder[i - 1];
+                mHits[i] = mHits[i - 1];
+                i--;
+            }
+            mOrder[i] = cell;
+            mHits[i] = hits;
+        }
+
+        int best = -1;
+        float bestValue = Float.MAX_VALUE;
+        for (int i = 0; i < count && !mAborted; i++) {
+            float value = shoot(alive, 0, mOrder[i], bestValue);
+            if (!mAborted && value < bestValue) {
+                bestValue = value;
+                best = mOrder[i];
+            }
+        }
+        if (best == -1) {
+            return -1;
+        }
+        mExpectedShots = bestValue;
+        return mCells[best];
+    }
+
+    /**
+     * Method enumerating the consistent layouts of the remaining Shapes
+     * @param controller
+     * @return false if the Storage Map is not an endgame
+     */
+    private boolean enumerate(GameController controller) {
+        BitBoard hits = controller.getHitMask();
+        BitBoard played = controller.getPlayedMask();
+        mMisses.set(played);
+        mMisses.andNot(hits);
+
+        // Consistent placements of the remaining Shapes
+        mRemainingCount = 0;
+        long product = 1;
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            BitBoard shapeHits = controller.getHitMask(shape);
+            if (shapeHits.count() >= mAtlas.getShapeSize(shape)) {
+                continue;
+            }
+            mBlocked.set(hits);
+            mBlocked.andNot(shapeHits);
+            mBlocked.or(mMisses);
+            int count = mAtlas.getConsistentPlacements(shape, mBlocked, shapeHits, mPlacements[shape]);
+            // Enemy moved its Tetrominos, or too many layouts to enumerate
+            product *= count;
+            if (count == 0 || product > MAX_LAYOUTS * MAX_LAYOUTS) {
+                return false;
+            }
+            mPlacementsCounts[shape] = count;
+            mRemainingShapes[mRemainingCount++] = shape;
+        }
+        if (mRemainingCount == 0) {
+            return false;
+        }
+
+        // Layouts without overlapping Shapes
+        mLayoutsCount = 0;
+        if (!enumerate(0, 0, 0) || mLayoutsCount == 0) {
+            return false;
+        }
+
+        // Unknown cells
+        mUnknown.clear();
+        for (int l = 0; l < mLayoutsCount; l++) {
+            for (int i = 0; i < mRemainingCount; i++) {
+                for (int cell : mAtlas.getCells(mLayouts[l][i])) {
+                    mUnknown.set(cell);
+                }
+            }
+        }
+        mUnknown.andNot(played);
+        mCellsCount = mUnknown.count();
+        if (mCellsCount > MAX_CELLS) {
+            return false;
+        }
+        int local = 0;
+        for (int cell = mUnknown.nextSetBit(0); cell != -1; cell = mUnknown.nextSetBit(cell + 1)) {
+            mCells[local++] = cell;
+        }
+        for (int l = 0; l < mLayoutsCount; l++) {
+            long mask = 0;
+            byte[] shapes = mLayoutShapes[l];
+            for (int i = 0; i < mCellsCount; i++) {
+                shapes[i] = 0;
+                for (int s = 0; s < mRemainingCount; s++) {
+                    int p = mLayouts[l][s];
+                    if (contains(p, mCells[i])) {
+                        shapes[i] = (byte) (mRemainingShapes[s] + 1);
+                        mask |= 1L << i;
+                    }
+                }
+            }
+            mLayoutMasks[l] = mask;
+        }
+        return true;
+    }
+
+    /**
+     * Recursive enumeration of the layouts
+     * @param index the index of the Shape to place in mRemainingShapes
+     * @param low the occupied cells (low)
+     * @param high the occupied cells (high)
+     * @return false if there are too many layouts
+     */
+    private boolean enumerate(int index, long low, long high) {
+        if (index == mRemainingCount) {
+            if (mLayoutsCount == MAX_LAYOUTS) {
+                return false;
+            }
+            System.arraycopy(mLayout, 0, mLayouts[mLayoutsCount++], 0, mRemainingCount);
+            return true;
+        }
+        int shape = mRemainingShapes[index];
+        int[] placements = mPlacements[shape];
+        for (int i = 0; i < mPlacementsCounts[shape]; i++) {
+            int p = placements[i];
+            if ((mAtlas.getLow(p) & low) != 0 || (mAtlas.getHigh(p) & high) != 0) {
+                continue;
+            }
+            mLayout[index] = p;
+            if (!enumerate(index + 1, low | mAtlas.getLow(p), high | mAtlas.getHigh(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean contains(int placement, int cell) {
+        return cell < 64 ? (mAtlas.getLow(placement) & (1L << cell)) != 0
+                : (mAtlas.getHigh(placement) & (1L << (cell - 64))) != 0;
+    }
+
+    /**
+     * Method returning the cells worth shooting: the unknown cells of the alive layouts, except
+     * the ones giving the same result in all the layouts (they must be shot anyway, but they
+     * don't give any information, so they can be shot last)
+     * @param alive the alive layouts
+     * @param shot the shot cells
+     * @return the cells' local mask
+     */
+    private long getCandidates(long alive, long shot) {
+        long union = 0;
+        long common = -1L;
+        for (long a = alive; a != 0; a &= a - 1) {
+            long mask = mLayoutMasks[Long.numberOfTrailingZeros(a)] & ~shot;
+            union |= mask;
+            common &= mask;
+        }
+        long candidates = union;
+        int first = Long.numberOfTrailingZeros(alive);
+        for (long c = common; c != 0; c &= c - 1) {
+            int cell = Long.numberOfTrailingZeros(c);
+            byte shape = mLayoutShapes[first][cell];
+            boolean same = true;
+            for (long a = alive; a != 0 && same; a &= a - 1) {
+                same = mLayoutShapes[Long.numberOfTrailingZeros(a)][cell] == shape;
+            }
+            if (same) {
+                candidates &= ~(1L << cell);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Method returning the expected count of shots after shooting the cell
+     * @param alive the alive layouts
+     * @param shot the shot cells
+     * @param cell the cell's local index
+     * @param bound the best value already found, the search stops when it can't be beaten
+     * @return the expected count, or at least the bound
+     */
+    private float shoot(long alive, long shot, int cell, float bound) {
+        // Split the layouts by result
+        int depth = Long.bitCount(shot);
+        long[] results = mResults[depth];
+        float[] bounds = mBounds[depth];
+        Arrays.fill(results, 0);
+        for (long a = alive; a != 0; a &= a - 1) {
+            int l = Long.numberOfTrailingZeros(a);
+            results[mLayoutShapes[l][cell]] |= 1L << l;
+        }
+        int count = Long.bitCount(alive);
+        long nextShot = shot | (1L << cell);
+
+        // Lower bound: all the cells of the true layout must be shot
+        float value = 1;
+        for (int r = 0; r < results.length; r++) {
+            if (results[r] != 0) {
+                bounds[r] = Long.bitCount(results[r]) / (float) count * getLowerBound(results[r], nextShot);
+                value += bounds[r];
+            }
+        }
+        if (value >= bound) {
+            return bound;
+        }
+
+        for (int r = 0; r < results.length; r++) {
+            if (results[r] != 0) {
+                value += Long.bitCount(results[r]) / (float) count * expect(results[r], nextShot) - bounds[r];
+                if (mAborted || value >= bound) {
+                    return bound;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Method returning the mean count of remaining cells of the alive layouts
+     * @param alive
+     * @param shot
+     * @return
+     */
+    private float getLowerBound(long alive, long shot) {
+        int cells = 0;
+        for (long a = alive; a != 0; a &= a - 1) {
+            cells += Long.bitCount(mLayoutMasks[Long.numberOfTrailingZeros(a)] & ~shot);
+        }
+        return cells / (float) Long.bitCount(alive);
+    }
+
+    /**
+     * Method returning the expected count of remaining shots
+     * @param alive the alive layouts
+     * @param shot the shot cells
+     * @return
+     */
+    private float expect(long alive, long shot) {
+        // The layouts fully shot are over
+        long remaining = 0;
+        for (long a = alive; a != 0; a &= a - 1) {
+            int l = Long.numberOfTrailingZeros(a);
+            if ((mLayoutMasks[l] & ~shot) != 0) {
+                remaining |= 1L << l;
+            }
+        }
+        if (remaining == 0) {
+            return 0;
+        }
+        float ratio = Long.bitCount(remaining) / (float) Long.bitCount(alive);
+        if (Long.bitCount(remaining) == 1) {
+            return ratio * Long.bitCount(mLayoutMasks[Long.numberOfTrailingZeros(remaining)] & ~shot);
+        }
+
+        int slot = getMemoSlot(remaining, shot);
+        if (mMemoAlive[slot] != 0) {
+            return ratio * mMemoValues[slot];
+        }
+        if (++mNodes > mNodeBudget || ((mNodes & 63) == 0 && mDeadline.isExpired())) {
+            mAborted = true;
+            return 0;
+        }
+
+        long candidates = getCandidates(remaining, shot);
+        float best;
+        if (candidates == 0) {
+            // Same remaining cells in all the layouts
+            best = Long.bitCount(mLayoutMasks[Long.numberOfTrailingZeros(remaining)] & ~shot);
+        }
+        else {
+            best = Float.MAX_VALUE;
+            for (long c = candidates; c != 0; c &= c - 1) {
+                best = Math.min(best, shoot(remaining, shot, Long.numberOfTrailingZeros(c), best));
+                if (mAborted) {
+                    return 0;
+                }
+            }
+        }
+        putMemo(remaining, shot, best);
+        return ratio * best;
+    }
+
+    /**
+     * Method returning the memo table's slot of the search state: its slot, or the empty slot
+     * where to store it
+     * @param alive the alive layouts
+     * @param shot the shot cells
+     * @return
+     */
+    private int getMemoSlot(long alive, long shot) {
+        int mask = mMemoAlive.length - 1;
+        long hash = (alive * 31 + shot) * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash >>> 32) & mask;
+        while (mMemoAlive[slot] != 0 && (mMemoAlive[slot] != alive || mMemoShot[slot] != shot)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Method storing the value of the search state, the table is doubled when half full
+     * @param alive the alive layouts (not 0)
+     * @param shot the shot cells
+     * @param value
+     */
+    private void putMemo(long alive, long shot, float value) {
+        if ((mMemoSize + 1) * 2 > mMemoAlive.length) {
+            long[] alives = mMemoAlive;
+            long[] shots = mMemoShot;
+            float[] values = mMemoValues;
+            mMemoAlive = new long[alives.length * 2];
+            mMemoShot = new long[alives.length * 2];
+            mMemoValues = new float[alives.length * 2];
+            for (int i = 0; i < alives.length; i++) {
+                if (alives[i] != 0) {
+                    int slot = getMemoSlot(alives[i], shots[i]);
+                    mMemoAlive[slot] = alives[i];
+                    mMemoShot[slot] = shots[i];
+                    mMemoValues[slot] = values[i];
+                }
+            }
+        }
+        int slot = getMemoSlot(alive, shot);
+        mMemoAlive[slot] = alive;
+        mMemoShot[slot] = shot;
+        mMemoValues[slot] = value;
+        mMemoSize++;
+    }
+}
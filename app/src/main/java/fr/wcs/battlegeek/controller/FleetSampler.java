@@ -0,0 +1,318 @@
+package fr.wcs.battlegeek.controller;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.utils.BitBoard;
+import fr.wcs.battlegeek.utils.Deadline;
+
+/**
+ * Monte Carlo Sampler of the enemy's Fleet
+ *
+ * Draws complete layouts of the remaining Shapes: each Shape gets a placement consistent with
+ * the Storage Map, and the Shapes must not overlap each other (joint consistency, the Density
+ * Map only counts the Shapes one by one).
+ * Each Shape's placement is drawn among its consistent ones, and the whole layout is rejected
+ * on the first overlap: every consistent layout is drawn with the same probability. The most
+ * constrained Shapes are drawn first, so the rejections happen early.
+ * The cell the most often occupied across the samples is the best shot, the cells whose
+ * frequencies are within the sampling error of the best one are as good.
+ *
+ * The sampling is spread over all the cores, and runs until the time budget is spent, so it
+ * draws a few thousands samples on a phone and much more on a big computer.
+ */
+public class FleetSampler {
+    private static final String TAG = Settings.TAG;
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService sExecutor = null;
+
+    // Default time budget and maximal samples count
+    public static final long DEFAULT_TIME_BUDGET = 5;
+    public static final int DEFAULT_MAX_SAMPLES = 50000;
+
+    // Samples' count from which a sampling's best cells are reliable (worth caching)
+    public static final int RELIABLE_SAMPLES = 1000;
+
+    // Standard errors of the best cell's frequency within which the cells are as good
+    private static final float CONFIDENCE = 2;
+
+    private PlacementAtlas mAtlas = PlacementAtlas.getInstance();
+
+    private long mTimeBudget = DEFAULT_TIME_BUDGET;
+    private int mMaxSamples = DEFAULT_MAX_SAMPLES;
+
+    // Occupation count of each cell, samples' count and samples' cap of the last sampling
+    private int[] mCounts = new int[BitBoard.CELLS];
+    private int mSamplesCount = 0;
+    private int mSamplesCap = 0;
+
+    // Buffers
+    private BitBoard mBlocked = new BitBoard();
+    private BitBoard mAvailable = new BitBoard();
+
+    /**
+     * Method returning the shared workers' pool, created on first call
+     * Android's ForkJoinPool needs API 21, so a fixed pool of daemon threads is used instead
+     * @return
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FleetSampler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * Method setting the time budget of a sampling
+     * @param millis
+     */
+    public void setTimeBudget(long millis) {
+        mTimeBudget = millis;
+    }
+
+    /**
+     * Method setting the maximal count of samples of a sampling
+     * @param maxSamples
+     */
+    public void setMaxSamples(int maxSamples) {
+        mMaxSamples = maxSamples;
+    }
+
+    /**
+     * Method sampling the layouts consistent with the Game Controller's Storage Map
+     * @param controller the Game Controller storing the shots' results
+     * @return the samples' count, 0 if no consistent layout was found
+     */
+    public int sample(GameController controller) {
+        return sample(controller, Deadline.NONE);
+    }
+
+    /**
+     * Method sampling the layouts consistent with the Game Controller's Storage Map,
+     * stopping at the time budget or at the deadline
+     * @param controller the Game Controller storing the shots' results
+     * @param deadline the move's deadline
+     * @return the samples' count, 0 if no consistent layout was found
+     */
+    public int sample(GameController controller, Deadline deadline) {
+        final int[][] candidates = getCandidates(controller);
+        final long end = System.nanoTime() + Math.min(mTimeBudget * 1000000L, deadline.getRemainingNanos());
+        final int maxSamples = Math.max(1, mMaxSamples / THREADS);
+
+        mSamplesCount = 0;
+        mSamplesCap = maxSamples * THREADS;
+        Arrays.fill(mCounts, 0);
+        // No consistent layout, or nothing left to find
+        if (candidates == null || candidates.length == 0) {
+            return 0;
+        }
+
+        if (THREADS == 1) {
+            mSamplesCount = new Worker(candidates, end, maxSamples, mCounts).call();
+            return mSamplesCount;
+        }
+
+        ArrayList<Future<Integer>> futures = new ArrayList<>();
+        ArrayList<int[]> counts = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int[] workerCounts = new int[BitBoard.CELLS];
+            counts.add(workerCounts);
+            futures.add(getExecutor().submit(new Worker(candidates, end, maxSamples, workerCounts)));
+        }
+        for (int i = 0; i < THREADS; i++) {
+            try {
+                mSamplesCount += futures.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                Log.e(TAG, "sample: worker failed", e);
+                continue;
+            }
+            int[] workerCounts = counts.get(i);
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                mCounts[cell] += workerCounts[cell];
+            }
+        }
+        return mSamplesCount;
+    }
+
+    /**
+     * Method returning the consistent placements of each remaining Shape,
+     * the most constrained Shapes first
+     * @param controller
+     * @return the placements, null if a Shape has no consistent placement
+     */
+    private int[][] getCandidates(GameController controller) {
+        BitBoard hits = controller.getHitMask();
+        BitBoard misses = new BitBoard(controller.getPlayedMask());
+        misses.andNot(hits);
+
+        ArrayList<int[]> candidates = new ArrayList<>();
+        for (int shape = 0; shape < mAtlas.getShapesCount(); shape++) {
+            BitBoard shapeHits = controller.getHitMask(shape);
+            // Drown Shapes' cells are already in the hits
+            if (shapeHits.count() >= mAtlas.getShapeSize(shape)) {
+                continue;
+            }
+            mBlocked.set(hits);
+            mBlocked.andNot(shapeHits);
+            mBlocked.or(misses);
+            int[] placements = new int[mAtlas.getShapeEnd(shape) - mAtlas.getShapeStart(shape)];
+            int count = mAtlas.getConsistentPlacements(shape, mBlocked, shapeHits, placements);
+            // Should not happen, unless the enemy moved its Tetrominos
+            if (count == 0) {
+                return null;
+            }
+            int[] shapeCandidates = new int[count];
+            System.arraycopy(placements, 0, shapeCandidates, 0, count);
+            // Insert sorted by count
+            int index = 0;
+            while (index < candidates.size() && candidates.get(index).length <= count) {
+                index++;
+            }
+            candidates.add(index, shapeCandidates);
+        }
+        return candidates.toArray(new int[candidates.size()][]);
+    }
+
+    /**
+     * Method returning the samples' count of the last sampling
+     * @return
+     */
+    public int getSamplesCount() {
+        return mSamplesCount;
+    }
+
+    /**
+     * Method returning the occupation frequency of the cell in the last sampling
+     * @param cell the cell's index
+     * @return
+     */
+    public float getFrequency(int cell) {
+        return mSamplesCount == 0 ? 0 : mCounts[cell] / (float) mSamplesCount;
+    }
+
+    /**
+     * Method checking if the last sampling drew enough samples for its best cells to be reliable:
+     * RELIABLE_SAMPLES, or its samples' cap when lower
+     * @return
+     */
+    public boolean isReliable() {
+        return mSamplesCount > 0 && mSamplesCount >= Math.min(RELIABLE_SAMPLES, mSamplesCap);
+    }
+
+    /**
+     * Method storing in the array the not played cells the most often occupied in the last
+     * sampling, the best first: the cells whose frequencies are within CONFIDENCE standard
+     * errors of the best one
+     * @param played the played cells' mask
+     * @param cells the array receiving the cells' indexes (BitBoard.CELLS long)
+     * @return the count of cells, 0 if there is no sample or all the cells were played
+     */
+    public int getBestCells(BitBoard played, int[] cells) {
+        if (mSamplesCount == 0) {
+            return 0;
+        }
+        mAvailable.set(played);
+        mAvailable.not();
+        int best = -1;
+        for (int cell = mAvailable.nextSetBit(0); cell != -1; cell = mAvailable.nextSetBit(cell + 1)) {
+            best = Math.max(best, mCounts[cell]);
+        }
+        // Binomial error of the best count
+        double threshold = best - CONFIDENCE * Math.sqrt(best * (double) (mSamplesCount - best) / mSamplesCount);
+        int count = 0;
+        for (int cell = mAvailable.nextSetBit(0); cell != -1; cell = mAvailable.nextSetBit(cell + 1)) {
+            if (mCounts[cell] < threshold) {
+                continue;
+            }
+            // Insertion sorted by count
+            int i = count++;
+            for (; i > 0 && mCounts[cells[i - 1]] < mCounts[cell]; i--) {
+                cells[i] = cells[i - 1];
+            }
+            cells[i] = cell;
+        }
+        return count;
+    }
+
+    /**
+     * Sampling Task: draws layouts until the deadline, and counts the occupied cells
+     */
+    private class Worker implements Callable<Integer> {
+        private final int[][] mShapesCandidates;
+        private final long mDeadline;
+        private final int mMax;
+        private final int[] mWorkerCounts;
+        private final Random mRandom = new Random();
+        private final int[] mLayout;
+
+        Worker(int[][] candidates, long deadline, int max, int[] counts) {
+            mShapesCandidates = candidates;
+            mDeadline = deadline;
+            mMax = max;
+            mWorkerCounts = counts;
+            mLayout = new int[candidates.length];
+        }
+
+        @Override
+        public Integer call() {
+            int samples = 0;
+            int attempts = 0;
+            while (samples < mMax) {
+                // Check the time from time to time
+                if ((++attempts & 15) == 0 && System.nanoTime() > mDeadline) {
+                    break;
+                }
+                if (!draw()) {
+                    continue;
+                }
+                for (int p : mLayout) {
+                    for (int cell : mAtlas.getCells(p)) {
+                        mWorkerCounts[cell]++;
+                    }
+                }
+                samples++;
+            }
+            return samples;
+        }
+
+        /**
+         * Method drawing a layout without overlapping Shapes
+         * Retrying a Shape on an overlap would favour the Shapes drawn first: the whole layout
+         * is rejected instead
+         * @return false if the layout was rejected
+         */
+        private boolean draw() {
+            long low = 0;
+            long high = 0;
+            for (int i = 0; i < mShapesCandidates.length; i++) {
+                int[] candidates = mShapesCandidates[i];
+                int placement = candidates[mRandom.nextInt(candidates.length)];
+                if ((mAtlas.getLow(placement) & low) != 0 || (mAtlas.getHigh(placement) & high) != 0) {
+                    return false;
+                }
+                low |= mAtlas.getLow(placement);
+                high |= mAtlas.getHigh(placement);
+                mLayout[i] = placement;
+            }
+            return true;
+        }
+    }
+}
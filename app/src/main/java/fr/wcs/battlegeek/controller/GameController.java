@@ -7,14 +7,15 @@ import java.util.ArrayList;
 import fr.wcs.battlegeek.model.Bonus;
 import fr.wcs.battlegeek.model.Result;
 import fr.wcs.battlegeek.model.Settings;
-import fr.wcs.battlegeek.ui.Tetromino;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+import fr.wcs.battlegeek.utils.BitBoard;
 
 import static fr.wcs.battlegeek.model.Result.Type.BONUS;
 import static fr.wcs.battlegeek.model.Result.Type.DROWN;
 import static fr.wcs.battlegeek.model.Result.Type.MISSED;
 import static fr.wcs.battlegeek.model.Result.Type.TOUCHED;
 import static fr.wcs.battlegeek.model.Result.Type.VICTORY;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.NONE;
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
 
 /**
  * Created by adphi on 04/10/17.
@@ -25,10 +26,18 @@ import static fr.wcs.battlegeek.ui.Tetromino.Shape.NONE;
  * This Class handle the analysis of the shots coordinates according to the map
  *
  * It store the Item's Map and the played Shots' Results in the storage map
+ *
+ * Both maps are mirrored in BitBoard masks, the game's logic only works on the masks,
+ * the characters maps are kept up to date for the Views.
+ * The Shapes are the ones of the Fleet's catalog (see ShapeCatalog.getFleet), identified by their
+ * index in the catalog.
  */
 public class GameController {
     private final String TAG = Settings.TAG;
 
+    // The Fleet's Shapes
+    private final ShapeCatalog mCatalog;
+
     // Maps initialisation
 
     // The map containing the Item's position, also storing the enemy shots
@@ -37,12 +46,27 @@ public class GameController {
     // The map storing the shots' results
     private char[][] mStorageMap = new char[Settings.GRID_SIZE][Settings.GRID_SIZE];
 
+    // Item's Map Masks: the cells of each Shape, the Bonus, and the enemy shots
+    private BitBoard[] mShapeMasks;
+    private BitBoard mFleetMask = new BitBoard();
+    private BitBoard mBonusMask = new BitBoard();
+    private BitBoard mShotMask = new BitBoard();
+
+    // Storage Map Masks: the played cells, the touched ones, and the touched ones of each Shape
+    private BitBoard mPlayedMask = new BitBoard();
+    private BitBoard mHitMask = new BitBoard();
+    private BitBoard[] mHitShapeMasks;
+
+    // Buffer used for the masks operations
+    private BitBoard mBuffer = new BitBoard();
+
     /**
      * Constructor
      * @param map the map containing the Item's positions
      */
     public GameController(char[][] map) {
-        mMap = map;
+        this(ShapeCatalog.getFleet());
+        setMap(map);
         for (int i = 0; i < Settings.GRID_SIZE; i++) {
             for (int j = 0; j < Settings.GRID_SIZE; j++) {
                 mStorageMap[i][j] = ' ';
@@ -50,6 +74,62 @@ public class GameController {
         }
     }
 
+    /**
+     * Copy Constructor
+     * @param other the Game Controller to copy
+     */
+    public GameController(GameController other) {
+        mCatalog = other.mCatalog;
+        mShapeMasks = new BitBoard[mCatalog.getShapesCount()];
+        mHitShapeMasks = new BitBoard[mCatalog.getShapesCount()];
+        mMap = new char[other.mMap.length][];
+        for (int i = 0; i < mMap.length; i++) {
+            mMap[i] = other.mMap[i].clone();
+            mStorageMap[i] = other.mStorageMap[i].clone();
+        }
+        for (int i = 0; i < mShapeMasks.length; i++) {
+            mShapeMasks[i] = new BitBoard(other.mShapeMasks[i]);
+            mHitShapeMasks[i] = new BitBoard(other.mHitShapeMasks[i]);
+        }
+        mFleetMask.set(other.mFleetMask);
+        mBonusMask.set(other.mBonusMask);
+        mShotMask.set(other.mShotMask);
+        mPlayedMask.set(other.mPlayedMask);
+        mHitMask.set(other.mHitMask);
+    }
+
+    /**
+     * Method returning a copy of the Storage Map and its masks, without the Item's Map
+     * The copy only stores and reads the shots' results: it must not be shot
+     * @return
+     */
+    public GameController getStorageCopy() {
+        GameController copy = new GameController(mCatalog);
+        for (int i = 0; i < Settings.GRID_SIZE; i++) {
+            copy.mStorageMap[i] = mStorageMap[i].clone();
+        }
+        for (int i = 0; i < mHitShapeMasks.length; i++) {
+            copy.mHitShapeMasks[i].set(mHitShapeMasks[i]);
+        }
+        copy.mPlayedMask.set(mPlayedMask);
+        copy.mHitMask.set(mHitMask);
+        return copy;
+    }
+
+    /**
+     * Constructor of an empty Storage Map, without Item's Map (see getStorageCopy)
+     * @param catalog the Fleet's Shapes
+     */
+    private GameController(ShapeCatalog catalog) {
+        mCatalog = catalog;
+        mShapeMasks = new BitBoard[catalog.getShapesCount()];
+        mHitShapeMasks = new BitBoard[catalog.getShapesCount()];
+        for (int i = 0; i < mShapeMasks.length; i++) {
+            mShapeMasks[i] = new BitBoard();
+            mHitShapeMasks[i] = new BitBoard();
+        }
+    }
+
     /**
      * Method responsible for analysing the shot's coordinates and returning the result
      * @param x
@@ -57,40 +137,38 @@ public class GameController {
      * @return The result
      */
     public Result shot(int x, int y) {
-        // Get the symbo in the map
-        char symbol = mMap[y][x];
+        int index = BitBoard.index(x, y);
 
         // Declaration of the two attributes of the resulting Result Object
         Result.Type resultType;
-        Tetromino.Shape resultShape;
+        int resultShape = getShape(index);
         Bonus.Type resultBonus = null;
 
-        // Map's symbol analysis
-        // If the symbol is a space character, the shot missed
-        if (symbol == ' ') {
-            mMap[y][x] = '_';
-            resultType = MISSED;
-            // Since there is no Item, there also is no Shape
-            resultShape = NONE;
-        }
-        // If Bonus
-        else if (symbol == '-' || symbol == '=' || symbol == '+') {
+        // Store the shot
+        mShotMask.set(index);
+
+        // If there is no Item, the shot missed
+        if (resultShape == NONE) {
+            // If Bonus (not already found)
+            if (mBonusMask.get(index)) {
+                resultType = BONUS;
+                resultBonus = Bonus.getBonus(mMap[y][x]);
+                mBonusMask.clear(index);
+            }
+            else {
+                resultType = MISSED;
+            }
             mMap[y][x] = '_';
-            resultType = BONUS;
-            resultShape = NONE;
-            resultBonus = Bonus.getBonus(symbol);
         }
-        // If the symbol is not a space, it did touched something
+        // It did touched something
         else {
             // Store the shot in the map, an touched Block is representing by his Shape symbol
             // to lower case
-            mMap[y][x] = Character.toLowerCase(symbol);
-            // Get the shape of the Item, according to its symbol
-            resultShape = Tetromino.Shape.valueOf(String.valueOf(symbol));
+            mMap[y][x] = Character.toLowerCase(mMap[y][x]);
             // Set the default result type: Touched
             resultType = TOUCHED;
             // If the Item is drown
-            if(isDrown(symbol)) {
+            if(isDrown(resultShape)) {
                 resultType = DROWN;
             }
             // If all the Items are drown
@@ -101,6 +179,38 @@ public class GameController {
         return new Result(x, y, resultShape, resultType, resultBonus);
     }
 
+    /**
+     * Method returning the Shape of the Item at the given cell
+     * @param index the cell's index
+     * @return the Shape's index, NONE if there is no Item
+     */
+    public int getShape(int index) {
+        if (mFleetMask.get(index)) {
+            for (int i = 0; i < mShapeMasks.length; i++) {
+                if (mShapeMasks[i].get(index)) {
+                    return i;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Method returning the catalog of the Fleet's Shapes
+     * @return
+     */
+    public ShapeCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     * Method returning the count of the Fleet's Shapes
+     * @return
+     */
+    public int getShapesCount() {
+        return mShapeMasks.length;
+    }
+
     /**
      * Method responsible for storing the results of shots in the Storage Map
      * @param result the Result Object of the shot's result
@@ -110,7 +220,10 @@ public class GameController {
         int y = result.getY();
         // Get the type and the shape
         Result.Type resultType = result.getType();
-        Tetromino.Shape resultShape = result.getShape();
+        int resultShape = result.getShape();
+
+        int index = BitBoard.index(x, y);
+        mPlayedMask.set(index);
 
         // If result is Missed, we store it as a underscore character
         if(resultType == MISSED || resultType == BONUS) {
@@ -118,26 +231,20 @@ public class GameController {
         }
         // If it Touched something, we store it as the symbol of its shape as lowercase
         else {
-            mStorageMap[y][x] = Character.toLowerCase(resultShape.toString().charAt(0));
+            mStorageMap[y][x] = Character.toLowerCase(mCatalog.getSymbol(resultShape));
+            mHitMask.set(index);
+            mHitShapeMasks[resultShape].set(index);
         }
     }
 
     /**
      * Method verifying if an Item is drown
-     * @param symbol the Item's symbol's character
+     * @param shape the Item's Shape
      * @return
      */
-    private boolean isDrown(char symbol) {
-        for(char[] row : mMap){
-            for(char letter : row){
-                // If the symbol is still in the Map (Lowercase), the Item is not drown
-                if(symbol == letter) {
-                    return false;
-                }
-            }
-        }
-        // We did not find the character, so, Item is drown
-        return true;
+    private boolean isDrown(int shape) {
+        // The Item is drown if all its cells were shot
+        return mShotMask.contains(mShapeMasks[shape]);
     }
 
     /**
@@ -145,18 +252,9 @@ public class GameController {
      * @return
      */
     private boolean victory() {
-        for(char[] row : mMap) {
-            for(char symbol: row) {
-                // As the Items are stored as Item's shape symbol to Lowercase character
-                // if we found a lowercase character, the game is not win
-                if(Character.isUpperCase(symbol)) {
-                    return false;
-                }
-            }
-        }
-        // Didn't found any lowercase character, so ... guess what...
+        // All the Items' cells were shot... guess what...
         // ... VICTORYYYYYYYYY !
-        return true;
+        return mShotMask.contains(mFleetMask);
     }
 
     /**
@@ -166,11 +264,7 @@ public class GameController {
      * @return
      */
     public boolean alreadyPlayed(int x, int y) {
-        // Get the symbol in the Storage Map
-        char symbol = mStorageMap[y][x];
-        // If the character is and underscore (Missed Symbol) or a lowercase character (touched symbol)
-        // the coordinates were already played, else, everything is ok.
-        return symbol == '_' || Character.isLowerCase(symbol);
+        return mPlayedMask.get(x, y);
     }
 
     public boolean alreadyPlayed(Point point) {
@@ -179,37 +273,26 @@ public class GameController {
 
     public ArrayList<Point> getAvailableCoordinates(){
         ArrayList<Point> availableCoordinates = new ArrayList<>();
-        for (int i = 0; i < mStorageMap.length; i++) {
-            for (int j = 0; j < mStorageMap[i].length; j++) {
-                if(mStorageMap[i][j] == ' ') {
-                    availableCoordinates.add(new Point(j, i));
-                }
-            }
+        mBuffer.set(mPlayedMask);
+        mBuffer.not();
+        for (int i = mBuffer.nextSetBit(0); i != -1; i = mBuffer.nextSetBit(i + 1)) {
+            availableCoordinates.add(new Point(BitBoard.getX(i), BitBoard.getY(i)));
         }
         return availableCoordinates;
     }
 
+    /**
+     * Method returning the not played cells of the Cross Fire footprint centered on the coordinates
+     * @param x
+     * @param y
+     * @return
+     */
     public ArrayList<Point> getSurrondingcoordinates(int x, int y) {
         ArrayList<Point> points = new ArrayList<Point>();
-        int xMin = Math.max(x - 1, 0);
-        int xMax = Math.min(x + 1, Settings.GRID_SIZE - 1);
-        int yMin = Math.max(y - 1, 0);
-        int yMax = Math.min(y + 1, Settings.GRID_SIZE - 1);
-
-        // Add the 3 on the x axis;
-        for (int i = xMin; i <= xMax; i++) {
-            if(!alreadyPlayed(i, y)) {
-                points.add(new Point(i, y));
-            }
-        }
-        // Add the two on the y axis
-        for (int i = yMin; i <= yMax; i++) {
-            // We already have the Point x,y
-            if(! alreadyPlayed(x, i) && i != y) {
-                points.add(new Point(x, i));
-            }
+        getSurroundingMask(BitBoard.index(x, y), mBuffer);
+        for (int i = mBuffer.nextSetBit(0); i != -1; i = mBuffer.nextSetBit(i + 1)) {
+            points.add(new Point(BitBoard.getX(i), BitBoard.getY(i)));
         }
-
         return points;
     }
 
@@ -217,25 +300,41 @@ public class GameController {
         return getSurrondingcoordinates(point.x, point.y);
     }
 
+    /**
+     * Method storing in the given mask the not played cells of the Cross Fire footprint
+     * @param index the center's index
+     * @param mask the mask receiving the cells
+     */
+    public void getSurroundingMask(int index, BitBoard mask) {
+        mask.setPlus(index);
+        mask.andNot(mPlayedMask);
+    }
+
+    /**
+     * Method storing in the given mask the not played cells
+     * @param mask the mask receiving the cells
+     */
+    public void getAvailableMask(BitBoard mask) {
+        mask.set(mPlayedMask);
+        mask.not();
+    }
+
     public void setBonus(){
         // Get Empty Coordinates
-        ArrayList<Point> emptyCells = new ArrayList<>();
-        for (int i = 0; i < mMap.length; i++) {
-            for (int j = 0; j < mMap[i].length; j++) {
-                if(mMap[i][j] == ' ') {
-                    emptyCells.add(new Point(j, i));
-                }
-            }
-        }
+        mBuffer.set(mFleetMask);
+        mBuffer.or(mBonusMask);
+        mBuffer.or(mShotMask);
+        mBuffer.not();
+
         // Get the bonus
         Bonus.Type[] bonus = Bonus.Type.values();
 
         // Set Bonus in the Map
         for (int i = 0; i < bonus.length; i++) {
-            int index = (int)(Math.random() * (emptyCells.size() - 1));
-            Point position = emptyCells.get(index);
-            emptyCells.remove(index);
-            mMap[position.y][position.x] = bonus[i].toString().charAt(0);
+            int index = mBuffer.getSetBit((int)(Math.random() * (mBuffer.count() - 1)));
+            mBuffer.clear(index);
+            mBonusMask.set(index);
+            mMap[BitBoard.getY(index)][BitBoard.getX(index)] = bonus[i].toString().charAt(0);
         }
     }
 
@@ -243,11 +342,126 @@ public class GameController {
         return mMap;
     }
 
+    /**
+     * Method setting the Item's Map and computing its masks
+     * @param map
+     */
     public void setMap(char[][] map) {
         mMap = map;
+        for (BitBoard shapeMask : mShapeMasks) {
+            shapeMask.clear();
+        }
+        mFleetMask.clear();
+        mBonusMask.clear();
+        mShotMask.clear();
+        for (int i = 0; i < mMap.length; i++) {
+            for (int j = 0; j < mMap[i].length; j++) {
+                char symbol = mMap[i][j];
+                int index = BitBoard.index(j, i);
+                // Shot cell
+                if (symbol == '_' || Character.isLowerCase(symbol)) {
+                    mShotMask.set(index);
+                }
+                // Bonus
+                else if (Bonus.getBonus(symbol) != null) {
+                    mBonusMask.set(index);
+                }
+                // Tetromino (touched or not)
+                int shape = mCatalog.indexOf(symbol);
+                if (shape != NONE) {
+                    mShapeMasks[shape].set(index);
+                    mFleetMask.set(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method moving the Item of the Shape on the mask's cells
+     * The Item must not be touched, and the cells must be free (no other Item, Bonus or shot)
+     * @param shape the Item's Shape
+     * @param mask the new cells of the Item
+     */
+    public void moveShape(int shape, BitBoard mask) {
+        BitBoard shapeMask = mShapeMasks[shape];
+        for (int i = shapeMask.nextSetBit(0); i != -1; i = shapeMask.nextSetBit(i + 1)) {
+            mMap[BitBoard.getY(i)][BitBoard.getX(i)] = ' ';
+        }
+        char symbol = mCatalog.getSymbol(shape);
+        for (int i = mask.nextSetBit(0); i != -1; i = mask.nextSetBit(i + 1)) {
+            mMap[BitBoard.getY(i)][BitBoard.getX(i)] = symbol;
+        }
+        mFleetMask.andNot(shapeMask);
+        mFleetMask.or(mask);
+        shapeMask.set(mask);
     }
 
     public char[][] getStorageMap() {
         return mStorageMap;
     }
+
+    /**
+     * Method returning the mask of the cells of the Shape in the Item's Map
+     * The returned mask must not be modified
+     * @param shape
+     * @return
+     */
+    public BitBoard getShapeMask(int shape) {
+        return mShapeMasks[shape];
+    }
+
+    /**
+     * Method returning the mask of the Items' cells in the Item's Map
+     * The returned mask must not be modified
+     * @return
+     */
+    public BitBoard getFleetMask() {
+        return mFleetMask;
+    }
+
+    /**
+     * Method returning the mask of the Bonus not found yet in the Item's Map
+     * The returned mask must not be modified
+     * @return
+     */
+    public BitBoard getBonusMask() {
+        return mBonusMask;
+    }
+
+    /**
+     * Method returning the mask of the enemy's shots in the Item's Map
+     * The returned mask must not be modified
+     * @return
+     */
+    public BitBoard getShotMask() {
+        return mShotMask;
+    }
+
+    /**
+     * Method returning the mask of the played cells in the Storage Map
+     * The returned mask must not be modified
+     * @return
+     */
+    public BitBoard getPlayedMask() {
+        return mPlayedMask;
+    }
+
+    /**
+     * Method returning the mask of the touched cells in the Storage Map
+     * The returned mask must not be modified
+     * @return
+     */
+    public BitBoard getHitMask() {
+        return mHitMask;
+    }
+
+    /**
+     * Method returning the mask of the touched cells of the Shape in the Storage Map
+     * The returned mask must not be modified
+     * @param shape
+     * @return
+     */
+    public BitBoard getHitMask(int shape) {
+        return mHitShapeMasks[shape];
+    }
 }
@@ -0,0 +1,92 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Hint Engine: the best cells for the Player's next shot
+ *
+ * The Player's results are counted in a Density Map, the same placements' counting as the AI:
+ * the drown Shapes and the touched cells are taken into account. Each result is processed on a
+ * background Thread, and the best cells are computed right after it, so the hint is ready as soon
+ * as the Player asks for it.
+ */
+public class HintEngine {
+
+    // Count of cells of a hint
+    public static final int HINT_CELLS = 3;
+
+    private ExecutorService mExecutor;
+
+    // Only used on the background Thread
+    private DensityMap mDensityMap = new DensityMap();
+    private BitBoard mPlayed = new BitBoard();
+
+    // Best cells for the current results
+    private volatile int[] mHint = new int[0];
+
+    /**
+     * Constructor
+     */
+    public HintEngine() {
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "HintEngine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Method to call after the Player's Game Controller stored the result
+     * @param result
+     */
+    public void update(final Result result) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mDensityMap.update(result);
+                mPlayed.set(result.getX(), result.getY());
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Method computing the not played cells with the highest densities
+     */
+    private void refresh() {
+        int[] cells = new int[HINT_CELLS];
+        int count = mDensityMap.getTopCells(mPlayed, cells, HINT_CELLS);
+        int[] hint = new int[count];
+        System.arraycopy(cells, 0, hint, 0, count);
+        mHint = hint;
+    }
+
+    /**
+     * Method returning the best cells for the Player's next shot
+     * @return the cells' indexes, the best first (empty until the first computation)
+     */
+    public int[] getHint() {
+        return mHint;
+    }
+
+    /**
+     * Method stopping the background Thread
+     */
+    public void release() {
+        mExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,155 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.utils.BitBoard;
+import fr.wcs.battlegeek.utils.CellSet;
+
+import static fr.wcs.battlegeek.model.Result.Type.DROWN;
+import static fr.wcs.battlegeek.model.Result.Type.MISSED;
+import static fr.wcs.battlegeek.model.Result.Type.TOUCHED;
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Base of the Hunt and Target Strategies (Levels I and II)
+ *
+ * The strategy keeps its own candidates: the playable cells, the probable ones (highest density),
+ * and the cells around the touched Tetrominos (target mode), with the touched cells of each Shape.
+ * They are updated by the results, so a strategy mixed with another one (see SkillTable) stays
+ * up to date when it did not play.
+ */
+public abstract class HuntStrategy implements ShotStrategy {
+
+    protected CellSet mPlayableCoordinates = new CellSet();
+    protected CellSet mProbableCoordinates = new CellSet();
+    protected CellSet mSurroundingCoordinates = new CellSet();
+    protected HashMap<Integer, ArrayList<Point>> mShapeMap = new HashMap<>();
+    protected int mLastTouchedShape = NONE;
+    protected Result mLastResult = new Result(-1, -1, NONE, MISSED, null);
+    protected Point mLastPlayedCoordinates;
+
+    protected BitBoard mBuffer = new BitBoard();
+
+    protected HuntStrategy() {
+    }
+
+    /**
+     * Copy Constructor
+     * @param other
+     */
+    protected HuntStrategy(HuntStrategy other) {
+        mPlayableCoordinates = new CellSet(other.mPlayableCoordinates);
+        mProbableCoordinates = new CellSet(other.mProbableCoordinates);
+        mSurroundingCoordinates = new CellSet(other.mSurroundingCoordinates);
+        for (Integer shape : other.mShapeMap.keySet()) {
+            mShapeMap.put(shape, new ArrayList<>(other.mShapeMap.get(shape)));
+        }
+        mLastTouchedShape = other.mLastTouchedShape;
+        mLastResult = other.mLastResult;
+        mLastPlayedCoordinates = other.mLastPlayedCoordinates;
+    }
+
+    @Override
+    public void reset(AI ai) {
+        mPlayableCoordinates.fill();
+        mProbableCoordinates = ai.getProbableCells(mPlayableCoordinates);
+        mSurroundingCoordinates.clear();
+        mShapeMap.clear();
+        mLastTouchedShape = NONE;
+        mLastResult = new Result(-1, -1, NONE, MISSED, null);
+        mLastPlayedCoordinates = null;
+    }
+
+    @Override
+    public void onResult(AI ai, Result result) {
+        mLastResult = result;
+        mLastPlayedCoordinates = new Point(result.getX(), result.getY());
+        int cell = BitBoard.index(result.getX(), result.getY());
+        mPlayableCoordinates.remove(cell);
+        mProbableCoordinates.remove(cell);
+        mSurroundingCoordinates.remove(cell);
+        Result.Type resultType = result.getType();
+        int resultShape = result.getShape();
+
+        if (resultType == TOUCHED) {
+            if (!mShapeMap.containsKey(resultShape)) {
+                mShapeMap.put(resultShape, new ArrayList<Point>());
+            }
+            mShapeMap.get(resultShape).add(mLastPlayedCoordinates);
+        }
+
+        if (resultType == DROWN) {
+            mShapeMap.remove(resultShape);
+            mPlayableCoordinates.addAll(mSurroundingCoordinates);
+            mSurroundingCoordinates.clear();
+            mLastTouchedShape = mShapeMap.isEmpty() ? NONE : mShapeMap.keySet().iterator().next();
+        }
+    }
+
+    /**
+     * Method dropping the Cross Fire Bonus, if the AI has it and if it is worth it
+     * @param ai
+     * @return the center's coordinates, null if no Bomb is dropped
+     */
+    protected Point dropBomb(AI ai) {
+        int center = ai.planBomb();
+        if (center == -1) {
+            return null;
+        }
+        // Remove the surrounding Points
+        ai.getGameController().getSurroundingMask(center, mBuffer);
+        mPlayableCoordinates.removeAll(mBuffer);
+        mProbableCoordinates.removeAll(mBuffer);
+        mSurroundingCoordinates.removeAll(mBuffer);
+        mLastPlayedCoordinates = ai.dropBomb(center);
+        return mLastPlayedCoordinates;
+    }
+
+    /**
+     * Set the Surrounding Coordinates of the Point in mSurroundingCoordinates
+     * @param ai
+     * @param point
+     */
+    protected void getSurroundingCoordinates(AI ai, Point point) {
+        int index = BitBoard.index(point.x, point.y);
+        // The 4 direct neighbours, not already played
+        ai.getGameController().getSurroundingMask(index, mBuffer);
+        mBuffer.clear(index);
+        for (int i = mBuffer.nextSetBit(0); i != -1; i = mBuffer.nextSetBit(i + 1)) {
+            // Avoid duplicates: only the cells still in the playable coordinates
+            if (mPlayableCoordinates.remove(i)) {
+                mSurroundingCoordinates.add(i);
+            }
+        }
+    }
+
+    /**
+     * Get (and Delete) a Random Point from the Set
+     * When the Set is empty (the Player moved its Tetrominos), fall back on the probable
+     * coordinates, then on the playable ones
+     * @param set
+     * @return
+     */
+    protected Point getRandomPoint(CellSet set) {
+        int cell = set.removeRandom();
+        if (cell == -1 && set != mPlayableCoordinates) {
+            cell = mProbableCoordinates.removeRandom();
+        }
+        if (cell == -1) {
+            cell = mPlayableCoordinates.removeRandom();
+        }
+        if (cell == -1) {
+            return null;
+        }
+        mPlayableCoordinates.remove(cell);
+        return new Point(BitBoard.getX(cell), BitBoard.getY(cell));
+    }
+
+    protected static int getIndex(Point point) {
+        return BitBoard.index(point.x, point.y);
+    }
+}
@@ -0,0 +1,96 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+
+import fr.wcs.battlegeek.model.Result;
+
+import static fr.wcs.battlegeek.model.Result.Type.BONUS;
+import static fr.wcs.battlegeek.model.Result.Type.DROWN;
+import static fr.wcs.battlegeek.model.Result.Type.MISSED;
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Level I's Strategy: Play randomly then play all around when TOUCHED a Tetromino
+ *
+ * The random shots are drawn among the probable cells of the game's start.
+ */
+public class HuntTargetStrategy extends HuntStrategy {
+
+    public HuntTargetStrategy() {
+    }
+
+    private HuntTargetStrategy(HuntTargetStrategy other) {
+        super(other);
+    }
+
+    @Override
+    public Point play(AI ai) {
+        // Give the type of result (missed, touched ...)
+        Result.Type resultType = mLastResult.getType();
+        // Get the type of Tetromino shape
+        int resultShape = mLastResult.getShape();
+
+        // AI Use REPLAY Bonus if Possible
+        ai.updateSelectedBonus();
+
+        // BONUS CROSS FIRE
+        Point bomb = dropBomb(ai);
+        if (bomb != null) {
+            return bomb;
+        }
+
+        //Play randomly during hunt mode (nothing found and looking for tetromino)
+        if (mSurroundingCoordinates.isEmpty() && (resultType == MISSED || resultType == BONUS)) {
+            if(!mProbableCoordinates.isEmpty()) {
+                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
+                mPlayableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+            }
+            else{
+                mLastPlayedCoordinates = getRandomPoint(mPlayableCoordinates);
+            }
+
+            return mLastPlayedCoordinates;
+        }
+
+        //When a boat is drown go back in hunt mode
+        if (resultType == DROWN) {
+            if(mLastTouchedShape != NONE) {
+                ArrayList<Point> touchedPoint = mShapeMap.get(mLastTouchedShape);
+                for(Point p : touchedPoint) {
+                    getSurroundingCoordinates(ai, p);
+                }
+                mLastPlayedCoordinates = getRandomPoint(mSurroundingCoordinates);
+                mPlayableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+                return mLastPlayedCoordinates;
+            }
+            else if(!mProbableCoordinates.isEmpty()) {
+                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
+                mPlayableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+                return mLastPlayedCoordinates;
+            }
+            else {
+                mLastPlayedCoordinates = getRandomPoint(mPlayableCoordinates);
+                return mLastPlayedCoordinates;
+            }
+        }
+
+        //When a result type is touched, go in target mode by creating a map of possible coordinates
+
+        if (resultType != MISSED && resultType != BONUS) {
+            mLastTouchedShape = resultShape;
+            getSurroundingCoordinates(ai, mLastPlayedCoordinates);
+        }
+
+        //Shot in the possible coordinates (target mode)
+        mLastPlayedCoordinates = getRandomPoint(mSurroundingCoordinates);
+        mProbableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+        return mLastPlayedCoordinates;
+    }
+
+    @Override
+    public ShotStrategy copy() {
+        return new HuntTargetStrategy(this);
+    }
+}
@@ -0,0 +1,51 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+
+import fr.wcs.battlegeek.model.Result;
+
+/**
+ * Level Impossible's Strategy: play each Block of the Player's Map, shot after shot
+ *
+ * The Blocks are read from the Player's Map given to the AI, at the first move.
+ */
+public class ImpossibleStrategy implements ShotStrategy {
+
+    // The Player's Blocks, null until the first move (not modified: shared by the copies)
+    private ArrayList<Point> mBlocks = null;
+    // Next Block to play
+    private int mNext = 0;
+
+    public ImpossibleStrategy() {
+    }
+
+    private ImpossibleStrategy(ImpossibleStrategy other) {
+        mBlocks = other.mBlocks;
+        mNext = other.mNext;
+    }
+
+    @Override
+    public Point play(AI ai) {
+        if (mBlocks == null) {
+            mBlocks = CheatStrategy.getBlocks(ai.getPlayerMap());
+        }
+        return mNext < mBlocks.size() ? mBlocks.get(mNext++) : null;
+    }
+
+    @Override
+    public void onResult(AI ai, Result result) {
+    }
+
+    @Override
+    public void reset(AI ai) {
+        mBlocks = null;
+        mNext = 0;
+    }
+
+    @Override
+    public ShotStrategy copy() {
+        return new ImpossibleStrategy(this);
+    }
+}
@@ -0,0 +1,296 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.Arrays;
+
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Exact Cover Enumerator of the Fleet's layouts (Knuth's Dancing Links)
+ *
+ * A layout places each enumerated Shape exactly once, covers each touched cell exactly once,
+ * with the Shape that was touched there, and covers any other cell at most once.
+ * The Shape and touched cells columns are primary, the other cells columns are secondary,
+ * the rows are the placements avoiding the missed cells and the other Shapes' touched cells.
+ *
+ * The layouts are streamed: next() resumes the search where the previous layout was found,
+ * so the enumeration can be stopped at any time.
+ */
+public class LayoutEnumerator {
+
+    private PlacementAtlas mAtlas = PlacementAtlas.getInstance();
+    private int mShapesCount = mAtlas.getShapesCount();
+
+    // Dancing Links: node 0 is the root, then the Shapes' columns, then the cells' columns
+    private static final int ROOT = 0;
+    private int mCellsColumns = 1 + mShapesCount;
+    private int[] mLeft;
+    private int[] mRight;
+    private int[] mUp;
+    private int[] mDown;
+    private int[] mColumn;
+    private int[] mRow;
+    private int[] mSizes;
+
+    // Search's stack: the chosen column and row node at each level
+    private int[] mColumns = new int[mShapesCount];
+    private int[] mChoices = new int[mShapesCount];
+    private int mLevel = 0;
+    private boolean mForward = true;
+    private boolean mDone = false;
+
+    // Placement of each Shape in the current layout (-1 if not enumerated)
+    private int[] mLayout = new int[mShapesCount];
+
+    /**
+     * Constructor enumerating the layouts of all the Shapes consistent with the Game Controller's
+     * Storage Map
+     * @param controller the Game Controller storing the shots' results
+     */
+    public LayoutEnumerator(GameController controller) {
+        BitBoard misses = new BitBoard(controller.getPlayedMask());
+        misses.andNot(controller.getHitMask());
+        BitBoard[] shapesHits = new BitBoard[mShapesCount];
+        boolean[] shapes = new boolean[mShapesCount];
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            shapesHits[shape] = controller.getHitMask(shape);
+            shapes[shape] = true;
+        }
+        init(misses, shapesHits, shapes);
+    }
+
+    /**
+     * Constructor enumerating the layouts of the selected Shapes
+     * @param misses the missed cells' mask
+     * @param shapesHits the touched cells' mask of each Shape
+     * @param shapes the Shapes to place, the touched cells of the other Shapes are avoided
+     */
+    public LayoutEnumerator(BitBoard misses, BitBoard[] shapesHits, boolean[] shapes) {
+        init(misses, shapesHits, shapes);
+    }
+
+    private void init(BitBoard misses, BitBoard[] shapesHits, boolean[] shapes) {
+        BitBoard hits = new BitBoard();
+        for (BitBoard shapeHits : shapesHits) {
+            hits.or(shapeHits);
+        }
+
+        // Rows: the placements of the selected Shapes
+        BitBoard blocked = new BitBoard();
+        int[][] placements = new int[mShapesCount][];
+        int[] counts = new int[mShapesCount];
+        int nodes = mCellsColumns + BitBoard.CELLS;
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            if (!shapes[shape]) {
+                continue;
+            }
+            blocked.set(hits);
+            blocked.andNot(shapesHits[shape]);
+            blocked.or(misses);
+            placements[shape] = new int[mAtlas.getShapeEnd(shape) - mAtlas.getShapeStart(shape)];
+            counts[shape] = mAtlas.getConsistentPlacements(shape, blocked, shapesHits[shape], placements[shape]);
+            nodes += counts[shape] * (1 + mAtlas.getShapeSize(shape));
+        }
+
+        mLeft = new int[nodes];
+        mRight = new int[nodes];
+        mUp = new int[nodes];
+        mDown = new int[nodes];
+        mColumn = new int[nodes];
+        mRow = new int[nodes];
+        mSizes = new int[mCellsColumns + BitBoard.CELLS];
+
+        // Columns: only the primary ones are linked to the root
+        mLeft[ROOT] = ROOT;
+        mRight[ROOT] = ROOT;
+        for (int c = 1; c < mCellsColumns + BitBoard.CELLS; c++) {
+            mUp[c] = c;
+            mDown[c] = c;
+            mColumn[c] = c;
+            mLeft[c] = c;
+            mRight[c] = c;
+            boolean primary = c < mCellsColumns ? shapes[c - 1]
+                    : hits.get(c - mCellsColumns) && isSelected(shapesHits, shapes, c - mCellsColumns);
+            if (primary) {
+                mLeft[c] = mLeft[ROOT];
+                mRight[c] = ROOT;
+                mRight[mLeft[ROOT]] = c;
+                mLeft[ROOT] = c;
+            }
+        }
+
+        int node = mCellsColumns + BitBoard.CELLS;
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            for (int i = 0; i < counts[shape]; i++) {
+                int p = placements[shape][i];
+                int first = node;
+                node = addNode(node, first, 1 + shape, p);
+                for (int cell : mAtlas.getCells(p)) {
+                    node = addNode(node, first, mCellsColumns + cell, p);
+                }
+            }
+        }
+        Arrays.fill(mLayout, -1);
+    }
+
+    /**
+     * Method checking if the touched cell belongs to a Shape to place
+     */
+    private boolean isSelected(BitBoard[] shapesHits, boolean[] shapes, int cell) {
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            if (shapes[shape] && shapesHits[shape].get(cell)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method appending the node at the end of the column and of the row
+     * @return the next free node
+     */
+    private int addNode(int node, int first, int column, int placement) {
+        mColumn[node] = column;
+        mRow[node] = placement;
+        mUp[node] = mUp[column];
+        mDown[node] = column;
+        mDown[mUp[column]] = node;
+        mUp[column] = node;
+        mSizes[column]++;
+        mLeft[node] = node == first ? node : mLeft[first];
+        mRight[node] = first;
+        mRight[mLeft[node]] = node;
+        mLeft[first] = node;
+        return node + 1;
+    }
+
+    private void cover(int column) {
+        mLeft[mRight[column]] = mLeft[column];
+        mRight[mLeft[column]] = mRight[column];
+        for (int i = mDown[column]; i != column; i = mDown[i]) {
+            for (int j = mRight[i]; j != i; j = mRight[j]) {
+                mUp[mDown[j]] = mUp[j];
+                mDown[mUp[j]] = mDown[j];
+                mSizes[mColumn[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int column) {
+        for (int i = mUp[column]; i != column; i = mUp[i]) {
+            for (int j = mLeft[i]; j != i; j = mLeft[j]) {
+                mSizes[mColumn[j]]++;
+                mUp[mDown[j]] = j;
+                mDown[mUp[j]] = j;
+            }
+        }
+        mLeft[mRight[column]] = column;
+        mRight[mLeft[column]] = column;
+    }
+
+    /**
+     * Method advancing to the next layout
+     * @return false if there is no more layout
+     */
+    public boolean next() {
+        while (!mDone) {
+            if (mForward) {
+                // All the primary columns are covered: found a layout
+                if (mRight[ROOT] == ROOT) {
+                    storeLayout();
+                    mForward = false;
+                    return true;
+                }
+                // Most constrained column
+                int column = mRight[ROOT];
+                for (int c = mRight[column]; c != ROOT; c = mRight[c]) {
+                    if (mSizes[c] < mSizes[column]) {
+                        column = c;
+                    }
+                }
+                if (mSizes[column] == 0) {
+                    mForward = false;
+                    continue;
+                }
+                cover(column);
+                mColumns[mLevel] = column;
+                mChoices[mLevel] = mDown[column];
+                select(mChoices[mLevel]);
+                mLevel++;
+            }
+            else {
+                // Backtrack: try the next row of the last chosen column
+                if (mLevel == 0) {
+                    mDone = true;
+                    break;
+                }
+                mLevel--;
+                int row = mChoices[mLevel];
+                for (int j = mLeft[row]; j != row; j = mLeft[j]) {
+                    uncover(mColumn[j]);
+                }
+                row = mDown[row];
+                if (row == mColumns[mLevel]) {
+                    uncover(row);
+                    continue;
+                }
+                mChoices[mLevel] = row;
+                select(row);
+                mLevel++;
+                mForward = true;
+            }
+        }
+        return false;
+    }
+
+    private void select(int row) {
+        for (int j = mRight[row]; j != row; j = mRight[j]) {
+            cover(mColumn[j]);
+        }
+    }
+
+    private void storeLayout() {
+        Arrays.fill(mLayout, -1);
+        for (int level = 0; level < mLevel; level++) {
+            int p = mRow[mChoices[level]];
+            mLayout[mAtlas.getShape(p)] = p;
+        }
+    }
+
+    /**
+     * Method returning the placement of the Shape in the current layout
+     * @param shape the Shape's index
+     * @return the placement, -1 if the Shape is not enumerated
+     */
+    public int getPlacement(int shape) {
+        return mLayout[shape];
+    }
+
+    /**
+     * Method storing the cells of the current layout in the mask
+     * @param mask
+     */
+    public void getMask(BitBoard mask) {
+        long low = 0;
+        long high = 0;
+        for (int p : mLayout) {
+            if (p != -1) {
+                low |= mAtlas.getLow(p);
+                high |= mAtlas.getHigh(p);
+            }
+        }
+        mask.set(low, high);
+    }
+
+    /**
+     * Method counting the remaining layouts, stopping at the limit
+     * @param limit
+     * @return
+     */
+    public int count(int limit) {
+        int count = 0;
+        while (count < limit && next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,281 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Optimizer of the AI's Fleet layout
+ *
+ * A layout gives each Shape a placement of the Placement Atlas, without overlaps. Its cost is
+ * the enemy's shooting heat summed over the Tetrominos' cells, plus a penalty for each contact
+ * between two Tetrominos: a hunt around a touched Tetromino finds its neighbours for free.
+ * The heat comes from the Player's past shots (see ShotHeat), the default heat is the density of a
+ * uniform placements' prior, where a density-based enemy shoots first.
+ * Each optimizer jitters the heat of each cell by up to HEAT_NOISE, so the optimum isn't the same
+ * from a game to the other.
+ *
+ * The layout is searched by simulated annealing: a step moves one Shape to another random
+ * placement, checked against the other Tetrominos with a mask test. A worse layout is accepted
+ * with a probability decreasing with the temperature, so the search leaves the local minima,
+ * and each game gets a different layout.
+ */
+public class LayoutOptimizer {
+
+    private static ExecutorService sExecutor = null;
+
+    // Default annealing's steps count and temperatures
+    public static final int DEFAULT_STEPS = 20000;
+    private static final float START_TEMPERATURE = 1f;
+    private static final float END_TEMPERATURE = 0.02f;
+
+    // Cost of a contact between two Tetrominos' cells
+    public static final float CONTACT_WEIGHT = 0.1f;
+
+    // Relative noise of each cell's heat
+    public static final float HEAT_NOISE = 0.2f;
+
+    private static final int SIZE = Settings.GRID_SIZE;
+
+    private PlacementAtlas mAtlas = PlacementAtlas.getInstance();
+    private int mShapesCount = mAtlas.getShapesCount();
+    private Random mRandom = new Random();
+    private int mSteps = DEFAULT_STEPS;
+
+    // Enemy's shooting heat of each placement
+    private float[] mPlacementsHeat;
+
+    // Neighbours' mask of each placement (the cells around it)
+    private long[] mNeighboursLow;
+    private long[] mNeighboursHigh;
+
+    // Current layout: the placement of each Shape, and the Fleet's mask
+    private int[] mLayout = new int[mShapesCount];
+    private BitBoard mFleet = new BitBoard();
+    private BitBoard mOthers = new BitBoard();
+
+    /**
+     * Method returning the shared background Thread, created on first call
+     * @return
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "LayoutOptimizer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * Method optimizing a layout in the background (while the Player places its Tetrominos)
+     * @param heat the Player's shooting heat of each cell (see ShotHeat)
+     * @return the future Map of the layout
+     */
+    public static Future<char[][]> submit(final float[] heat) {
+        return getExecutor().submit(new Callable<char[][]>() {
+            @Override
+            public char[][] call() throws Exception {
+                return new LayoutOptimizer(heat).optimize();
+            }
+        });
+    }
+
+    /**
+     * Method drawing a random layout of the Fleet, not optimized
+     * @return the Map of the layout
+     */
+    public static char[][] getRandomMap() {
+        LayoutOptimizer optimizer = new LayoutOptimizer(new float[BitBoard.CELLS]);
+        optimizer.randomLayout();
+        return optimizer.getMap(optimizer.mLayout);
+    }
+
+    /**
+     * Constructor, with the default heat
+     */
+    public LayoutOptimizer() {
+        DensityMap densityMap = new DensityMap();
+        float[] heat = new float[BitBoard.CELLS];
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            heat[cell] = densityMap.getDensity(cell);
+        }
+        init(heat);
+    }
+
+    /**
+     * Constructor
+     * @param heat the enemy's shooting heat of each cell
+     */
+    public LayoutOptimizer(float[] heat) {
+        init(heat);
+    }
+
+    private void init(float[] heat) {
+        float[] noisyHeat = new float[BitBoard.CELLS];
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            noisyHeat[cell] = heat[cell] * (1 + HEAT_NOISE * (2 * mRandom.nextFloat() - 1));
+        }
+        int count = mAtlas.getPlacementsCount();
+        mPlacementsHeat = new float[count];
+        mNeighboursLow = new long[count];
+        mNeighboursHigh = new long[count];
+        BitBoard neighbours = new BitBoard();
+        BitBoard placement = new BitBoard();
+        for (int p = 0; p < count; p++) {
+            neighbours.clear();
+            for (int cell : mAtlas.getCells(p)) {
+                mPlacementsHeat[p] += noisyHeat[cell];
+                int x = BitBoard.getX(cell);
+                int y = BitBoard.getY(cell);
+                if (x > 0) neighbours.set(cell - 1);
+                if (x < SIZE - 1) neighbours.set(cell + 1);
+                if (y > 0) neighbours.set(cell - SIZE);
+                if (y < SIZE - 1) neighbours.set(cell + SIZE);
+            }
+            mAtlas.getMask(p, placement);
+            neighbours.andNot(placement);
+            mNeighboursLow[p] = neighbours.getLow();
+            mNeighboursHigh[p] = neighbours.getHigh();
+        }
+    }
+
+    /**
+     * Method setting the annealing's steps count
+     * @param steps
+     */
+    public void setSteps(int steps) {
+        mSteps = steps;
+    }
+
+    /**
+     * Method searching a layout
+     * @return the Map of the layout
+     */
+    public char[][] optimize() {
+        randomLayout();
+        float cost = getCost();
+        int[] best = mLayout.clone();
+        float bestCost = cost;
+
+        float cooling = (float) Math.pow(END_TEMPERATURE / START_TEMPERATURE, 1.0 / mSteps);
+        float temperature = START_TEMPERATURE;
+        for (int step = 0; step < mSteps; step++, temperature *= cooling) {
+            int shape = mRandom.nextInt(mShapesCount);
+            int start = mAtlas.getShapeStart(shape);
+            int placement = start + mRandom.nextInt(mAtlas.getShapeEnd(shape) - start);
+            int previous = mLayout[shape];
+            mOthers.set(mFleet);
+            removePlacement(mOthers, previous);
+            if (placement == previous || mAtlas.intersects(placement, mOthers)) {
+                continue;
+            }
+            setPlacement(shape, placement);
+            float newCost = getCost();
+            if (newCost <= cost || mRandom.nextFloat() < Math.exp((cost - newCost) / temperature)) {
+                cost = newCost;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = mLayout.clone();
+                }
+            }
+            else {
+                setPlacement(shape, previous);
+            }
+        }
+        return getMap(best);
+    }
+
+    /**
+     * Method returning the Map of the layout
+     * @param layout the placement of each Shape
+     * @return
+     */
+    private char[][] getMap(int[] layout) {
+        char[][] map = new char[SIZE][SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                map[y][x] = ' ';
+            }
+        }
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            char symbol = mAtlas.getCatalog().getSymbol(shape);
+            for (int cell : mAtlas.getCells(layout[shape])) {
+                map[BitBoard.getY(cell)][BitBoard.getX(cell)] = symbol;
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Method drawing a random layout, the Shapes placed one by one
+     */
+    private void randomLayout() {
+        boolean placed = false;
+        while (!placed) {
+            mFleet.clear();
+            placed = true;
+            for (int shape = 0; shape < mShapesCount && placed; shape++) {
+                int start = mAtlas.getShapeStart(shape);
+                int size = mAtlas.getShapeEnd(shape) - start;
+                placed = false;
+                // Few tries: the Grid is mostly empty
+                for (int i = 0; i < size && !placed; i++) {
+                    int placement = start + mRandom.nextInt(size);
+                    if (!mAtlas.intersects(placement, mFleet)) {
+                        mLayout[shape] = placement;
+                        addPlacement(mFleet, placement);
+                        placed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method moving the Shape to the placement
+     * @param shape
+     * @param placement
+     */
+    private void setPlacement(int shape, int placement) {
+        removePlacement(mFleet, mLayout[shape]);
+        addPlacement(mFleet, placement);
+        mLayout[shape] = placement;
+    }
+
+    private void addPlacement(BitBoard mask, int placement) {
+        mask.set(mask.getLow() | mAtlas.getLow(placement), mask.getHigh() | mAtlas.getHigh(placement));
+    }
+
+    private void removePlacement(BitBoard mask, int placement) {
+        mask.set(mask.getLow() & ~mAtlas.getLow(placement), mask.getHigh() & ~mAtlas.getHigh(placement));
+    }
+
+    /**
+     * Method computing the cost of the current layout
+     * @return
+     */
+    private float getCost() {
+        float cost = 0;
+        int contacts = 0;
+        for (int shape = 0; shape < mShapesCount; shape++) {
+            int p = mLayout[shape];
+            cost += mPlacementsHeat[p];
+            // The neighbours of a placement are never its own cells
+            contacts += Long.bitCount(mNeighboursLow[p] & mFleet.getLow())
+                    + Long.bitCount(mNeighboursHigh[p] & mFleet.getHigh());
+        }
+        return cost + CONTACT_WEIGHT * contacts;
+    }
+}
@@ -0,0 +1,131 @@
+package fr.wcs.battlegeek.controller;
+
+import fr.wcs.battlegeek.utils.BitBoard;
+import fr.wcs.battlegeek.utils.Deadline;
+
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Two-ply Expectimax Lookahead
+ *
+ * Each candidate shot is valued by its chance to touch, plus the expected chance to touch of the
+ * best follow-up shot: the outcomes are a miss, or a touch of each Shape, weighted by their
+ * probabilities in the Density Map. Each outcome is applied to a copy-on-write snapshot of the
+ * Density Map (the Storage Map is never copied), so a branch only pays for the Shapes it changes.
+ *
+ * Only the cells with the highest densities are candidates, and the search stops at the deadline
+ * with the best candidate found so far (the densest first).
+ */
+public class Lookahead {
+
+    // Default count of candidates
+    public static final int DEFAULT_CANDIDATES = 6;
+
+    // Outcomes less probable are not explored
+    private static final float EPSILON = 1e-3f;
+
+    private DensityMap mDensityMap;
+    private int mCandidatesCount = DEFAULT_CANDIDATES;
+
+    // Buffers
+    private int[] mCandidates = new int[BitBoard.CELLS];
+    private BitBoard mPlayed = new BitBoard();
+
+    // Value of the last plan, and whether all its candidates were valued
+    private float mValue;
+    private boolean mComplete;
+
+    /**
+     * Constructor
+     * @param densityMap the Density Map of the enemy's Tetrominos
+     */
+    public Lookahead(DensityMap densityMap) {
+        mDensityMap = densityMap;
+    }
+
+    /**
+     * Method setting the count of candidates
+     * @param count
+     */
+    public void setCandidatesCount(int count) {
+        mCandidatesCount = Math.max(1, Math.min(count, BitBoard.CELLS));
+    }
+
+    /**
+     * Method returning the best shot
+     * @param played the played cells' mask
+     * @param deadline
+     * @return the cell's index, -1 if all the cells were played
+     */
+    public int plan(BitBoard played, Deadline deadline) {
+        int count = mDensityMap.getTopCells(played, mCandidates, mCandidatesCount);
+        int best = -1;
+        mValue = -1;
+        int i = 0;
+        for (; i < count && (best == -1 || !deadline.isExpired()); i++) {
+            int cell = mCandidates[i];
+            float value = getValue(played, cell);
+            if (value > mValue) {
+                mValue = value;
+                best = cell;
+            }
+        }
+        mComplete = i == count;
+        return best;
+    }
+
+    /**
+     * Method returning the value of the last plan
+     * @return the expected count of touches of the shot and its follow-up
+     */
+    public float getValue() {
+        return mValue;
+    }
+
+    /**
+     * Method checking if the last plan valued all its candidates (not stopped by the deadline),
+     * so its shot doesn't depend on the time it was given
+     * @return
+     */
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    /**
+     * Method returning the value of the shot on the cell
+     * @param played
+     * @param cell
+     * @return
+     */
+    private float getValue(BitBoard played, int cell) {
+        mPlayed.set(played);
+        mPlayed.set(cell);
+        float touched = 0;
+        float value = 0;
+        for (int shape = 0; shape < mDensityMap.getShapesCount(); shape++) {
+            float probability = mDensityMap.getShapeDensity(shape, cell);
+            if (probability < EPSILON) {
+                continue;
+            }
+            touched += probability;
+            value += probability * getFollowUp(cell, shape);
+        }
+        float missed = 1 - touched;
+        if (missed >= EPSILON) {
+            value += missed * getFollowUp(cell, NONE);
+        }
+        return Math.min(touched, 1) + value;
+    }
+
+    /**
+     * Method returning the best follow-up's chance to touch, after the outcome
+     * @param cell
+     * @param shape the touched Shape's index, NONE if missed
+     * @return
+     */
+    private float getFollowUp(int cell, int shape) {
+        DensityMap snapshot = new DensityMap(mDensityMap);
+        snapshot.update(cell, shape);
+        return Math.min(snapshot.getMaxDensity(mPlayed), 1);
+    }
+}
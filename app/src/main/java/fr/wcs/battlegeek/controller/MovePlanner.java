@@ -0,0 +1,127 @@
+package fr.wcs.battlegeek.controller;
+
+import fr.wcs.battlegeek.model.ShapeCatalog;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Planner of the Move Bonus (MOVE)
+ *
+ * The enemy sees only its shots on the AI's Map: its Probability Density (see DensityMap) is
+ * computed from them. The exposure of a Tetromino is the sum of this density over its cells,
+ * the expected count of Blocks the enemy's next shots would touch there.
+ *
+ * Only the surviving Tetrominos not touched yet can move, the enemy would notice the others.
+ * Each placement of their Shape (see PlacementAtlas) is legal if its mask avoids the other
+ * Tetrominos, the Bonus not found yet and the shot cells. The move lowering the exposure the
+ * most is kept, and the Bonus is used only when the gain clears the threshold.
+ */
+public class MovePlanner {
+
+    // Default exposure's gain needed to use the Bonus
+    public static final float DEFAULT_THRESHOLD = 1.0f;
+
+    private PlacementAtlas mAtlas = PlacementAtlas.getInstance();
+
+    // The enemy's Density, from its shots
+    private DensityMap mDensityMap = new DensityMap();
+    private float mThreshold = DEFAULT_THRESHOLD;
+
+    // Buffers
+    private float[] mDensity = new float[BitBoard.CELLS];
+    private BitBoard mBlocked = new BitBoard();
+    private BitBoard mOthers = new BitBoard();
+
+    // Last plan
+    private int mShape = ShapeCatalog.NONE;
+    private float mGain;
+
+    /**
+     * Method setting the exposure's gain needed to use the Bonus
+     * @param threshold
+     */
+    public void setThreshold(float threshold) {
+        mThreshold = threshold;
+    }
+
+    /**
+     * Method returning the best move of the AI's Tetrominos
+     * @param controller the AI's Game Controller (the Items' Map and the enemy's shots)
+     * @return the placement of the moved Shape, -1 if the Bonus should be kept for later
+     */
+    public int plan(GameController controller) {
+        BitBoard shot = controller.getShotMask();
+        mDensityMap.reset();
+        for (int cell = shot.nextSetBit(0); cell != -1; cell = shot.nextSetBit(cell + 1)) {
+            mDensityMap.update(cell, controller.getShape(cell));
+        }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            mDensity[cell] = mDensityMap.getDensity(cell);
+        }
+
+        // Cells no Tetromino can move on
+        mBlocked.set(controller.getFleetMask());
+        mBlocked.or(controller.getBonusMask());
+        mBlocked.or(shot);
+
+        int best = -1;
+        mShape = ShapeCatalog.NONE;
+        mGain = 0;
+        for (int shape = 0; shape < mAtlas.getShapesCount(); shape++) {
+            BitBoard mask = controller.getShapeMask(shape);
+            if (mask.isEmpty() || mask.intersects(shot)) {
+                continue;
+            }
+            float exposure = getExposure(mask.getLow(), mask.getHigh());
+            // The Tetromino can move on its own cells
+            mOthers.set(mBlocked);
+            mOthers.andNot(mask);
+            for (int p = mAtlas.getShapeStart(shape); p < mAtlas.getShapeEnd(shape); p++) {
+                if (mAtlas.intersects(p, mOthers)) {
+                    continue;
+                }
+                float gain = exposure - getExposure(mAtlas.getLow(p), mAtlas.getHigh(p));
+                if (gain > mGain) {
+                    mGain = gain;
+                    mShape = shape;
+                    best = p;
+                }
+            }
+        }
+        return mGain < mThreshold ? -1 : best;
+    }
+
+    /**
+     * Method summing the enemy's Density over the mask's cells
+     * @param low
+     * @param high
+     * @return
+     */
+    private float getExposure(long low, long high) {
+        float exposure = 0;
+        while (low != 0) {
+            exposure += mDensity[Long.numberOfTrailingZeros(low)];
+            low &= low - 1;
+        }
+        while (high != 0) {
+            exposure += mDensity[64 + Long.numberOfTrailingZeros(high)];
+            high &= high - 1;
+        }
+        return exposure;
+    }
+
+    /**
+     * Method returning the Shape moved by the last plan
+     * @return the Shape's index, NONE if none
+     */
+    public int getShape() {
+        return mShape;
+    }
+
+    /**
+     * Method returning the exposure's gain of the last plan
+     * @return
+     */
+    public float getGain() {
+        return mGain;
+    }
+}
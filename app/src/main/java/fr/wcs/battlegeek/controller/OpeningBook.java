@@ -0,0 +1,141 @@
+package fr.wcs.battlegeek.controller;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import fr.wcs.battlegeek.R;
+import fr.wcs.battlegeek.model.Settings;
+
+/**
+ * Opening Book of the AI's first shots
+ *
+ * Maps the early knowledge states (their Zobrist Hash, see ZobristHash) to the best next shot,
+ * precomputed offline by simulating the AI against the Maps' pool (see OpeningBookGenerator in
+ * the Android Tests).
+ *
+ * The book is stored in res/raw/opening_book.bin:
+ * magic (int), version (int), depth (int), count (int), then count times hash (long) and cell
+ * (byte), sorted by hash. It is streamed once into two arrays and searched by dichotomy.
+ */
+public class OpeningBook {
+    private static final String TAG = Settings.TAG;
+
+    private static final int MAGIC = 0x42474F42;
+    private static final int VERSION = 1;
+
+    private static OpeningBook sInstance = null;
+
+    private long[] mHashes = new long[0];
+    private byte[] mCells = new byte[0];
+    private int mDepth = 0;
+
+    /**
+     * Method returning the shared Opening Book, empty until loaded
+     * @return
+     */
+    public static synchronized OpeningBook getInstance() {
+        if (sInstance == null) {
+            sInstance = new OpeningBook();
+        }
+        return sInstance;
+    }
+
+    private OpeningBook() {
+    }
+
+    /**
+     * Method loading the Opening Book from the raw resources, once
+     * @param context
+     */
+    public static void load(Context context) {
+        OpeningBook book = getInstance();
+        synchronized (book) {
+            if (book.mDepth > 0) {
+                return;
+            }
+            InputStream inputStream = context.getResources().openRawResource(R.raw.opening_book);
+            try {
+                book.read(inputStream);
+            } catch (IOException e) {
+                Log.e(TAG, "load: invalid Opening Book", e);
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "load: ", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method reading the Opening Book from the stream
+     * @param inputStream
+     * @throws IOException if the stream is not an Opening Book
+     */
+    public synchronized void read(InputStream inputStream) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(inputStream));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not an Opening Book");
+        }
+        int depth = data.readInt();
+        int count = data.readInt();
+        long[] hashes = new long[count];
+        byte[] cells = new byte[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = data.readLong();
+            cells[i] = data.readByte();
+        }
+        mHashes = hashes;
+        mCells = cells;
+        mDepth = depth;
+        Log.d(TAG, "read: Opening Book states count: " + count);
+    }
+
+    /**
+     * Method writing an Opening Book
+     * @param outputStream
+     * @param hashes the states' hashes, sorted
+     * @param cells the best shot of each state
+     * @param depth the count of shots covered by the book
+     * @throws IOException
+     */
+    public static void write(OutputStream outputStream, long[] hashes, byte[] cells, int depth) throws IOException {
+        DataOutputStream data = new DataOutputStream(outputStream);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(depth);
+        data.writeInt(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            data.writeLong(hashes[i]);
+            data.writeByte(cells[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * Method returning the count of shots covered by the book
+     * @return 0 if the book is not loaded
+     */
+    public synchronized int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * Method returning the best shot of the state
+     * @param hash the knowledge's hash
+     * @return the cell's index, -1 if the state is not in the book
+     */
+    public synchronized int getCell(long hash) {
+        int i = Arrays.binarySearch(mHashes, hash);
+        return i < 0 ? -1 : mCells[i];
+    }
+}
@@ -0,0 +1,278 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Immutable table of every legal placement of each Shape of a Shape Catalog on the Grid
+ *
+ * The placements are derived from all the orientations of the catalog's Shapes,
+ * each one is stored as a mask, and sorted by Shape: the placements of a Shape are the indexes
+ * between getShapeStart(shape) and getShapeEnd(shape).
+ * An inverted index gives the placements covering each cell.
+ *
+ * The Atlas of the Fleet's catalog (see ShapeCatalog.getFleet) is built on first use, and shared
+ * by all the game's components, which index the Shapes as the catalog. It is built again when
+ * the Fleet changes: a component keeps the Atlas it was built with.
+ */
+public class PlacementAtlas {
+
+    private static PlacementAtlas sInstance = null;
+
+    private final ShapeCatalog mCatalog;
+
+    // Placements' masks, Shapes (index) and cells
+    private final long[] mLow;
+    private final long[] mHigh;
+    private final int[] mShape;
+    private final int[][] mCells;
+
+    // Placements' range of each Shape
+    private final int[] mShapeStart;
+
+    // Inverted index: the placements covering each cell
+    private final int[][] mCellPlacements;
+
+    /**
+     * Method returning the shared Atlas of the Fleet's catalog, building it on first call
+     * @return
+     */
+    public static synchronized PlacementAtlas getInstance() {
+        ShapeCatalog fleet = ShapeCatalog.getFleet();
+        if (sInstance == null || sInstance.mCatalog != fleet) {
+            sInstance = new PlacementAtlas(fleet);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructor
+     * @param catalog the Fleet's Shapes, indexed as in the catalog
+     */
+    public PlacementAtlas(ShapeCatalog catalog) {
+        mCatalog = catalog;
+        int shapesCount = catalog.getShapesCount();
+        ArrayList<int[]> placements = new ArrayList<>();
+        ArrayList<Integer> placementsShapes = new ArrayList<>();
+        mShapeStart = new int[shapesCount + 1];
+
+        for (int shape = 0; shape < shapesCount; shape++) {
+            mShapeStart[shape] = placements.size();
+            // Rotations may give the same placement twice
+            HashSet<BitBoard> known = new HashSet<>();
+            for (int[][] matrix : catalog.getRotations(shape)) {
+                int height = matrix.length;
+                int width = matrix[0].length;
+                for (int y = 0; y + height <= Settings.GRID_SIZE; y++) {
+                    for (int x = 0; x + width <= Settings.GRID_SIZE; x++) {
+                        BitBoard mask = new BitBoard();
+                        for (int i = 0; i < height; i++) {
+                            for (int j = 0; j < width; j++) {
+                                if (matrix[i][j] == 1) {
+                                    mask.set(x + j, y + i);
+                                }
+                            }
+                        }
+                        if (known.add(mask)) {
+                            int[] cells = new int[mask.count()];
+                            int count = 0;
+                            for (int c = mask.nextSetBit(0); c != -1; c = mask.nextSetBit(c + 1)) {
+                                cells[count++] = c;
+                            }
+                            placements.add(cells);
+                            placementsShapes.add(shape);
+                        }
+                    }
+                }
+            }
+        }
+        mShapeStart[shapesCount] = placements.size();
+
+        int size = placements.size();
+        mLow = new long[size];
+        mHigh = new long[size];
+        mShape = new int[size];
+        mCells = new int[size][];
+        int[] cellCounts = new int[BitBoard.CELLS];
+        BitBoard mask = new BitBoard();
+        for (int p = 0; p < size; p++) {
+            mCells[p] = placements.get(p);
+            mShape[p] = placementsShapes.get(p);
+            mask.clear();
+            for (int cell : mCells[p]) {
+                mask.set(cell);
+                cellCounts[cell]++;
+            }
+            mLow[p] = mask.getLow();
+            mHigh[p] = mask.getHigh();
+        }
+
+        // Inverted Index
+        mCellPlacements = new int[BitBoard.CELLS][];
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            mCellPlacements[cell] = new int[cellCounts[cell]];
+            cellCounts[cell] = 0;
+        }
+        for (int p = 0; p < size; p++) {
+            for (int cell : mCells[p]) {
+                mCellPlacements[cell][cellCounts[cell]++] = p;
+            }
+        }
+    }
+
+    /**
+     * Method returning the catalog of the Atlas' Shapes
+     * @return
+     */
+    public ShapeCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     * Method returning the total count of placements
+     * @return
+     */
+    public int getPlacementsCount() {
+        return mShape.length;
+    }
+
+    /**
+     * Method returning the count of Shapes
+     * @return
+     */
+    public int getShapesCount() {
+        return mShapeStart.length - 1;
+    }
+
+    /**
+     * Method returning the first placement of the Shape
+     * @param shape the Shape's index
+     * @return
+     */
+    public int getShapeStart(int shape) {
+        return mShapeStart[shape];
+    }
+
+    /**
+     * Method returning the end (exclusive) of the Shape's placements
+     * @param shape the Shape's index
+     * @return
+     */
+    public int getShapeEnd(int shape) {
+        return mShapeStart[shape + 1];
+    }
+
+    /**
+     * Method returning the count of cells of the Shape
+     * @param shape the Shape's index
+     * @return
+     */
+    public int getShapeSize(int shape) {
+        return mCatalog.getSize(shape);
+    }
+
+    /**
+     * Method returning the Shape's index of the placement
+     * @param placement
+     * @return
+     */
+    public int getShape(int placement) {
+        return mShape[placement];
+    }
+
+    public long getLow(int placement) {
+        return mLow[placement];
+    }
+
+    public long getHigh(int placement) {
+        return mHigh[placement];
+    }
+
+    /**
+     * Method returning the cells' indexes of the placement
+     * The returned array must not be modified
+     * @param placement
+     * @return
+     */
+    public int[] getCells(int placement) {
+        return mCells[placement];
+    }
+
+    /**
+     * Method returning the placements covering the cell
+     * The returned array must not be modified
+     * @param cell the cell's index
+     * @return
+     */
+    public int[] getPlacements(int cell) {
+        return mCellPlacements[cell];
+    }
+
+    /**
+     * Method storing the placement's cells in the given mask
+     * @param placement
+     * @param mask
+     */
+    public void getMask(int placement, BitBoard mask) {
+        mask.set(mLow[placement], mHigh[placement]);
+    }
+
+    /**
+     * Method checking if the placement has a cell in the mask
+     * @param placement
+     * @param mask
+     * @return
+     */
+    public boolean intersects(int placement, BitBoard mask) {
+        return mask.intersects(mLow[placement], mHigh[placement]);
+    }
+
+    /**
+     * Method checking if the placement covers all the cells of the mask
+     * @param placement
+     * @param mask
+     * @return
+     */
+    public boolean covers(int placement, BitBoard mask) {
+        return (mask.getLow() & ~mLow[placement]) == 0 && (mask.getHigh() & ~mHigh[placement]) == 0;
+    }
+
+    /**
+     * Method storing the placements of the Shape consistent with the shots' results:
+     * not covering a blocked cell (missed or touched on another Shape), and covering all the
+     * cells touched on the Shape
+     * @param shape the Shape's index
+     * @param blocked the blocked cells' mask
+     * @param shapeHits the Shape's touched cells' mask
+     * @param placements the array receiving the placements, sized for the Shape's placements
+     * @return the placements' count
+     */
+    public int getConsistentPlacements(int shape, BitBoard blocked, BitBoard shapeHits, int[] placements) {
+        int count = 0;
+        for (int p = mShapeStart[shape]; p < mShapeStart[shape + 1]; p++) {
+            if (!intersects(p, blocked) && covers(p, shapeHits)) {
+                placements[count++] = p;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method returning the placement of the Shape matching exactly the mask
+     * @param shape the Shape's index
+     * @param mask
+     * @return the placement, -1 if the mask is not a legal placement of the Shape
+     */
+    public int find(int shape, BitBoard mask) {
+        for (int p = mShapeStart[shape]; p < mShapeStart[shape + 1]; p++) {
+            if (mLow[p] == mask.getLow() && mHigh[p] == mask.getHigh()) {
+                return p;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,136 @@
+package fr.wcs.battlegeek.controller;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Learned Prior over the Player's Tetrominos placements
+ *
+ * Stores, for each Shape and each cell, how many times the Player placed the Shape on the cell,
+ * and the count of recorded games. The counts are stored in the Shared Preferences, one
+ * entry per Player.
+ *
+ * The weight of a placement grows with the frequency of its cells in the Player's past maps,
+ * so the AI looks first where the Player usually hides its Tetrominos.
+ */
+public class PlacementPrior {
+
+    // Weight of a placement always used by the Player (relative to a never used one)
+    private static final float PRIOR_STRENGTH = 8;
+
+    // Games needed before trusting half of the prior
+    private static final float PRIOR_SMOOTHING = 3;
+
+    private static final String GAMES_TAG = "Games";
+
+    private SharedPreferences mSharedPreferences;
+    private String mKey;
+
+    private ShapeCatalog mCatalog = ShapeCatalog.getFleet();
+    private int[][] mCounts = new int[mCatalog.getShapesCount()][Settings.GRID_SIZE * Settings.GRID_SIZE];
+    private int mGamesCount = 0;
+
+    /**
+     * Constructor loading the Player's counts
+     * @param context the application's Context
+     */
+    public PlacementPrior(Context context) {
+        mSharedPreferences = context.getSharedPreferences(Settings.FILE_NAME, MODE_PRIVATE);
+        mKey = Settings.PLACEMENT_PRIOR_TAG + mSharedPreferences.getString(Settings.UID, "");
+        // One prior per Fleet
+        if (mCatalog != ShapeCatalog.getDefault()) {
+            mKey += mCatalog.getSignature();
+        }
+        load();
+    }
+
+    private void load() {
+        mGamesCount = mSharedPreferences.getInt(mKey + GAMES_TAG, 0);
+        String counts = mSharedPreferences.getString(mKey, null);
+        if (counts == null) {
+            return;
+        }
+        String[] values = counts.split(",");
+        if (values.length != mCounts.length * mCounts[0].length) {
+            mGamesCount = 0;
+            return;
+        }
+        int index = 0;
+        for (int[] shapeCounts : mCounts) {
+            for (int cell = 0; cell < shapeCounts.length; cell++) {
+                shapeCounts[cell] = Integer.parseInt(values[index++]);
+            }
+        }
+    }
+
+    private void save() {
+        StringBuilder counts = new StringBuilder();
+        for (int[] shapeCounts : mCounts) {
+            for (int count : shapeCounts) {
+                if (counts.length() > 0) {
+                    counts.append(',');
+                }
+                counts.append(count);
+            }
+        }
+        mSharedPreferences.edit()
+                .putString(mKey, counts.toString())
+                .putInt(mKey + GAMES_TAG, mGamesCount)
+                .apply();
+    }
+
+    /**
+     * Method recording the Player's Map
+     * @param map the Player's Map (MapView.getMapData())
+     */
+    public void record(char[][] map) {
+        for (int y = 0; y < map.length; y++) {
+            for (int x = 0; x < map[y].length; x++) {
+                int shape = mCatalog.indexOf(map[y][x]);
+                if (shape != ShapeCatalog.NONE) {
+                    mCounts[shape][y * Settings.GRID_SIZE + x]++;
+                }
+            }
+        }
+        mGamesCount++;
+        save();
+    }
+
+    /**
+     * Method returning the count of recorded games
+     * @return
+     */
+    public int getGamesCount() {
+        return mGamesCount;
+    }
+
+    /**
+     * Method returning the weight of each placement of the Placement Atlas
+     * @return the weights, null if no game was recorded
+     */
+    public float[] getWeights() {
+        if (mGamesCount == 0) {
+            return null;
+        }
+        PlacementAtlas atlas = PlacementAtlas.getInstance();
+        float[] weights = new float[atlas.getPlacementsCount()];
+        float confidence = mGamesCount / (mGamesCount + PRIOR_SMOOTHING);
+        for (int p = 0; p < weights.length; p++) {
+            int shape = atlas.getShape(p);
+            int[] cells = atlas.getCells(p);
+            int sum = 0;
+            for (int cell : cells) {
+                sum += mCounts[shape][cell];
+            }
+            // 1 if the Player always used this placement
+            float frequency = sum / (float) (cells.length * mGamesCount);
+            weights[p] = 1 + PRIOR_STRENGTH * confidence * frequency;
+        }
+        return weights;
+    }
+}
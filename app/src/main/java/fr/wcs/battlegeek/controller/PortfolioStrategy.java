@@ -0,0 +1,217 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.utils.Deadline;
+
+/**
+ * Portfolio of Strategies racing on the move's time budget
+ *
+ * Each member plays on its own copy of the AI (the same knowledge), on the worker Threads shared
+ * by the portfolios. At the deadline, the answers are compared: the most confident move is the
+ * one chosen by the most members, then the one with the highest chance to touch. The members
+ * late at the deadline are ignored, except the first one, which always answers. The AI takes
+ * over the chosen copy's move.
+ *
+ * With a single core, the members play one after the other on the calling Thread, until the
+ * deadline.
+ * The chosen member keeps the state of its move, the other ones only the state changed by the
+ * results: their copies are discarded.
+ */
+public class PortfolioStrategy implements ShotStrategy {
+    private static final String TAG = Settings.TAG;
+
+    // Worker Threads, one by core
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService sExecutor = null;
+
+    // Time given to the members after the deadline to return their answer (milliseconds)
+    private static final long GRACE_TIME = 2;
+
+    private ShotStrategy[] mMembers;
+
+    /**
+     * Constructor
+     * @param names the registered Strategies' names, the first one always answers
+     */
+    public PortfolioStrategy(String... names) {
+        mMembers = new ShotStrategy[names.length];
+        for (int i = 0; i < names.length; i++) {
+            mMembers[i] = StrategyRegistry.create(names[i]);
+        }
+    }
+
+    private PortfolioStrategy(ShotStrategy[] members) {
+        mMembers = members;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "PortfolioStrategy");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    @Override
+    public Point play(AI ai) {
+        Deadline deadline = ai.getDeadline();
+        AI[] copies = new AI[mMembers.length];
+        ShotStrategy[] members = new ShotStrategy[mMembers.length];
+        for (int i = 0; i < mMembers.length; i++) {
+            members[i] = mMembers[i].copy();
+            copies[i] = new AI(ai, members[i]);
+        }
+        Point[] points = THREADS > 1 ? race(copies, deadline) : playInTurn(copies, deadline);
+        int best = choose(ai, copies, points);
+        if (best == -1) {
+            return null;
+        }
+        ai.adopt(copies[best]);
+        mMembers[best] = members[best];
+        return points[best];
+    }
+
+    /**
+     * Method playing the members one after the other, until the deadline
+     * @param copies
+     * @param deadline
+     * @return the members' moves, null if not played
+     */
+    private Point[] playInTurn(AI[] copies, Deadline deadline) {
+        Point[] points = new Point[copies.length];
+        for (int i = 0; i < copies.length && (i == 0 || !deadline.isExpired()); i++) {
+            points[i] = copies[i].play(getMillis(deadline));
+        }
+        return points;
+    }
+
+    /**
+     * Method playing the members on the worker Threads
+     * @param copies
+     * @param deadline
+     * @return the members' moves, null if late or failed
+     */
+    private Point[] race(AI[] copies, Deadline deadline) {
+        ExecutorService executor = getExecutor();
+        final long millis = getMillis(deadline);
+        ArrayList<Future<Point>> futures = new ArrayList<>();
+        for (final AI copy : copies) {
+            futures.add(executor.submit(new Callable<Point>() {
+                @Override
+                public Point call() throws Exception {
+                    return copy.play(millis);
+                }
+            }));
+        }
+        Point[] points = new Point[copies.length];
+        try {
+            for (int i = 0; i < copies.length; i++) {
+                Future<Point> future = futures.get(i);
+                try {
+                    if (i == 0) {
+                        points[i] = future.get();
+                    }
+                    else {
+                        long nanos = deadline.getRemainingNanos();
+                        nanos = nanos == Long.MAX_VALUE ? nanos : nanos + TimeUnit.MILLISECONDS.toNanos(GRACE_TIME);
+                        points[i] = future.get(nanos, TimeUnit.NANOSECONDS);
+                    }
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                } catch (ExecutionException e) {
+                    if (i == 0) {
+                        throw new RuntimeException(e.getCause());
+                    }
+                    Log.w(TAG, "race: member " + i + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Released: the answers so far
+            for (Future<Point> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+        }
+        return points;
+    }
+
+    /**
+     * Method choosing the most confident move
+     * @param ai
+     * @param copies
+     * @param points
+     * @return the chosen member's index, -1 if no member answered
+     */
+    private int choose(AI ai, AI[] copies, Point[] points) {
+        int best = -1;
+        int bestVotes = 0;
+        float bestDensity = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) {
+                continue;
+            }
+            int votes = 0;
+            for (int j = 0; j < points.length; j++) {
+                if (points[i].equals(points[j])
+                        && copies[i].getSelectedBonus() == copies[j].getSelectedBonus()) {
+                    votes++;
+                }
+            }
+            float density = ai.getDensity(points[i]);
+            if (votes > bestVotes || (votes == bestVotes && density > bestDensity)) {
+                best = i;
+                bestVotes = votes;
+                bestDensity = density;
+            }
+        }
+        return best;
+    }
+
+    private long getMillis(Deadline deadline) {
+        long nanos = deadline.getRemainingNanos();
+        return nanos == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public void onResult(AI ai, Result result) {
+        for (ShotStrategy member : mMembers) {
+            member.onResult(ai, result);
+        }
+    }
+
+    @Override
+    public void reset(AI ai) {
+        for (ShotStrategy member : mMembers) {
+            member.reset(ai);
+        }
+    }
+
+    @Override
+    public ShotStrategy copy() {
+        ShotStrategy[] members = new ShotStrategy[mMembers.length];
+        for (int i = 0; i < mMembers.length; i++) {
+            members[i] = mMembers[i].copy();
+        }
+        return new PortfolioStrategy(members);
+    }
+}
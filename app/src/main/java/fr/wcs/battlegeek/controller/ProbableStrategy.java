@@ -0,0 +1,171 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+import static fr.wcs.battlegeek.model.Result.Type.TOUCHED;
+import static fr.wcs.battlegeek.model.ShapeCatalog.NONE;
+
+/**
+ * Level II's Strategy: Play randomly in probables coordinates (highest density)
+ * When it founds a Tetromino it starts analysing the possibles coordinates of the
+ * remaining Blocks.
+ */
+public class ProbableStrategy extends HuntStrategy {
+
+    // Maximum count of layouts enumerated by the hunt, for each move
+    private static final int HUNT_LAYOUTS_LIMIT = 256;
+
+    public ProbableStrategy() {
+    }
+
+    protected ProbableStrategy(ProbableStrategy other) {
+        super(other);
+    }
+
+    @Override
+    public Point play(AI ai) {
+        // Store the Result's Type and Shape
+        Result.Type resultType = mLastResult.getType();
+        int resultShape = mLastResult.getShape();
+
+        // AI Use REPLAY Bonus if Possible
+        ai.updateSelectedBonus();
+
+        // Update Probability Coordinates
+        mProbableCoordinates = ai.getProbableCells(mPlayableCoordinates);
+
+        // We Touched Something !! Yihaaaaa !
+        if(resultType == TOUCHED && mLastTouchedShape == NONE) {
+            // Store the Shape to hunt
+            mLastTouchedShape = resultShape;
+            // Try to find Coordinates according to the Shape
+            // We store the result directly in the mLastPlayCoordinates buffer
+            mLastPlayedCoordinates = hunt(ai, resultShape);
+            // Nothing left to hunt here (the Player moved its Tetrominos)
+            if(mLastPlayedCoordinates == null) {
+                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
+            }
+            // Remove Point for PlayablesCoordinates
+            mPlayableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+            // Remove Point from ProbableCoordinates
+            mProbableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+            // Return the coordinates
+            return mLastPlayedCoordinates;
+        }
+        // Are we hunting something ?
+        else if(mLastTouchedShape != NONE) {
+            // Let's hunt !
+            mLastPlayedCoordinates = hunt(ai, mLastTouchedShape);
+            if(mLastPlayedCoordinates == null) {
+                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
+            }
+            // Clean Duplicates
+            mPlayableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+            mProbableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+            // Shoooooooot !
+            return mLastPlayedCoordinates;
+        }
+        // We don't have any Shape for hunting
+        if(!mProbableCoordinates.isEmpty()) {
+            // BONUS CROSS FIRE
+            // Let's try to drop a Bomb, if it is worth it
+            Point bomb = dropBomb(ai);
+            if(bomb != null) {
+                // Let's drop a Big Bomb
+                return bomb;
+            }
+            // Opening: the book knows the best shot
+            int cell = ai.getBookCell();
+            if(cell != -1) {
+                mLastPlayedCoordinates = new Point(BitBoard.getX(cell), BitBoard.getY(cell));
+                mProbableCoordinates.remove(cell);
+            }
+            // We don't have a bomb, so, sadly try a point in probables Coordinates
+            else {
+                mLastPlayedCoordinates = getRandomPoint(mProbableCoordinates);
+            }
+            // Cleaning
+            mPlayableCoordinates.remove(getIndex(mLastPlayedCoordinates));
+        }
+        // We don't have Interesting Points (should not happen)
+        else{
+            mLastPlayedCoordinates = getRandomPoint(mPlayableCoordinates);
+        }
+        return mLastPlayedCoordinates;
+    }
+
+    /**
+     * Method hunting the touched Tetromino of the Shape
+     * Around its first Block, then on the cells of the Shape's placements consistent with the
+     * shots: the hunt only works on the masks, for any Shape
+     * @param ai
+     * @param shape
+     * @return
+     */
+    private Point hunt(AI ai, int shape) {
+        // Get the Shape's Founded Coordinates
+        ArrayList<Point> foundedCoordinates = mShapeMap.get(shape);
+        // The remaining Blocks are given by the consistent layouts
+        if(foundedCoordinates.size() > 1) {
+            mPlayableCoordinates.addAll(mSurroundingCoordinates);
+            mSurroundingCoordinates.clear();
+            getShapeCoordinates(ai, shape);
+            if(!mSurroundingCoordinates.isEmpty()) {
+                return getRandomPoint(mSurroundingCoordinates);
+            }
+        }
+        // First Block, or no consistent layout (the Player moved its Tetrominos)
+        for(Point p : foundedCoordinates) {
+            getSurroundingCoordinates(ai, p);
+        }
+        if(foundedCoordinates.isEmpty() && mLastResult.getType() == TOUCHED) {
+            getSurroundingCoordinates(ai, mLastPlayedCoordinates);
+        }
+        return getRandomPoint(mSurroundingCoordinates);
+    }
+
+    /**
+     * Set the not played cells of the Shape's consistent placements in mSurroundingCoordinates
+     * The layouts of all the touched Shapes are enumerated, up to HUNT_LAYOUTS_LIMIT
+     * or until the move's deadline
+     * @param ai
+     * @param shape the hunted Shape
+     */
+    private void getShapeCoordinates(AI ai, int shape) {
+        GameController gameController = ai.getGameController();
+        BitBoard misses = new BitBoard(gameController.getPlayedMask());
+        misses.andNot(gameController.getHitMask());
+        int shapesCount = gameController.getShapesCount();
+        BitBoard[] shapesHits = new BitBoard[shapesCount];
+        boolean[] shapes = new boolean[shapesCount];
+        for (int s = 0; s < shapesCount; s++) {
+            shapesHits[s] = gameController.getHitMask(s);
+            shapes[s] = mShapeMap.containsKey(s);
+        }
+        shapes[shape] = true;
+
+        LayoutEnumerator enumerator = new LayoutEnumerator(misses, shapesHits, shapes);
+        PlacementAtlas atlas = PlacementAtlas.getInstance();
+        BitBoard cells = new BitBoard();
+        for (int i = 0; i < HUNT_LAYOUTS_LIMIT && !ai.getDeadline().isExpired() && enumerator.next(); i++) {
+            int placement = enumerator.getPlacement(shape);
+            cells.or(new BitBoard(atlas.getLow(placement), atlas.getHigh(placement)));
+        }
+        cells.andNot(gameController.getPlayedMask());
+        for (int i = cells.nextSetBit(0); i != -1; i = cells.nextSetBit(i + 1)) {
+            if (mPlayableCoordinates.remove(i)) {
+                mSurroundingCoordinates.add(i);
+            }
+        }
+    }
+
+    @Override
+    public ShotStrategy copy() {
+        return new ProbableStrategy(this);
+    }
+}
@@ -0,0 +1,235 @@
+package fr.wcs.battlegeek.controller;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Analyzer of the Player's shots, after the game
+ *
+ * The Player's shots and their results are recorded during the game. The analysis replays them
+ * in a Density Map: each shot is rated by the density of its cell (the chance to touch) against
+ * the highest density of the not played cells at that moment. The difference is the shot's
+ * regret, summed over the game, and the shots with the highest regret are the worst decisions.
+ * A Cross Fire is one decision, rated on its center.
+ *
+ * The analysis runs on a background Thread, each rated shot is posted to the UI Thread.
+ */
+public class ShotAnalyzer {
+
+    // Count of worst decisions reported
+    public static final int WORST_SHOTS = 3;
+
+    /**
+     * A rated shot
+     */
+    public static class Shot {
+        private int mNumber;
+        private int mCell;
+        private float mDensity;
+        private int mBestCell;
+        private float mBestDensity;
+
+        /**
+         * @return the shot's number in the game, starting at 1
+         */
+        public int getNumber() {
+            return mNumber;
+        }
+
+        /**
+         * @return the played cell's index
+         */
+        public int getCell() {
+            return mCell;
+        }
+
+        /**
+         * @return the chance to touch of the played cell
+         */
+        public float getDensity() {
+            return mDensity;
+        }
+
+        /**
+         * @return the best cell's index at that moment
+         */
+        public int getBestCell() {
+            return mBestCell;
+        }
+
+        /**
+         * @return the chance to touch of the best cell
+         */
+        public float getBestDensity() {
+            return mBestDensity;
+        }
+
+        /**
+         * @return the chance to touch lost by the shot
+         */
+        public float getRegret() {
+            return mBestDensity - mDensity;
+        }
+    }
+
+    /**
+     * Interface receiving the analysis on the UI Thread
+     */
+    public interface Listener {
+        /**
+         * Called after each rated shot
+         * @param shot the rated shot
+         * @param count the count of shots in the game
+         * @param regret the regret summed over the rated shots
+         */
+        void onShot(Shot shot, int count, float regret);
+
+        /**
+         * Called at the end of the analysis
+         * @param worst the worst decisions, the worst first
+         * @param regret the regret summed over the game
+         */
+        void onFinish(ArrayList<Shot> worst, float regret);
+    }
+
+    // The densities are chances to touch, up to the sums' rounding errors
+    private static final float MAX_DENSITY = 1;
+    private static final float EPSILON = 0.01f;
+
+    private ExecutorService mExecutor = null;
+    private Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Cell of each decision, and the results following it
+    private ArrayList<Integer> mCells = new ArrayList<>();
+    private ArrayList<ArrayList<Result>> mResults = new ArrayList<>();
+
+    /**
+     * Method recording the Player's shot
+     * @param x
+     * @param y
+     */
+    public void addShot(int x, int y) {
+        mCells.add(BitBoard.index(x, y));
+        mResults.add(new ArrayList<Result>());
+    }
+
+    /**
+     * Method recording a result of the last shot
+     * @param result
+     */
+    public void addResult(Result result) {
+        mResults.get(mResults.size() - 1).add(result);
+    }
+
+    /**
+     * Method analyzing the recorded shots in the background
+     * @param listener
+     */
+    public void analyze(final Listener listener) {
+        if (mExecutor == null) {
+            mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ShotAnalyzer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        final ArrayList<Integer> cells = new ArrayList<>(mCells);
+        final ArrayList<ArrayList<Result>> results = new ArrayList<>(mResults);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                analyze(cells, results, listener);
+            }
+        });
+    }
+
+    private void analyze(ArrayList<Integer> cells, ArrayList<ArrayList<Result>> results,
+                         final Listener listener) {
+        DensityMap densityMap = new DensityMap();
+        BitBoard played = new BitBoard();
+        int[] bestCells = new int[BitBoard.CELLS];
+        final ArrayList<Shot> worst = new ArrayList<>();
+        final int count = cells.size();
+        float regret = 0;
+        for (int i = 0; i < count; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            final Shot shot = new Shot();
+            shot.mNumber = i + 1;
+            shot.mCell = cells.get(i);
+            shot.mDensity = getChance(densityMap.getDensity(shot.mCell));
+            densityMap.getBestCells(played, bestCells);
+            shot.mBestCell = bestCells[0];
+            shot.mBestDensity = Math.max(shot.mDensity, getChance(densityMap.getDensity(shot.mBestCell)));
+            regret += shot.getRegret();
+            addWorst(worst, shot);
+
+            for (Result result : results.get(i)) {
+                densityMap.update(result);
+                played.set(result.getX(), result.getY());
+            }
+
+            final float shotsRegret = regret;
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onShot(shot, count, shotsRegret);
+                }
+            });
+        }
+        final float gameRegret = regret;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onFinish(worst, gameRegret);
+            }
+        });
+    }
+
+    private float getChance(float density) {
+        return Math.max(0, Math.min(MAX_DENSITY, density));
+    }
+
+    /**
+     * Method inserting the shot in the worst decisions, sorted by regret
+     * @param worst
+     * @param shot
+     */
+    private void addWorst(ArrayList<Shot> worst, Shot shot) {
+        if (shot.getRegret() < EPSILON) {
+            return;
+        }
+        int i = worst.size();
+        while (i > 0 && worst.get(i - 1).getRegret() < shot.getRegret()) {
+            i--;
+        }
+        if (i < WORST_SHOTS) {
+            worst.add(i, shot);
+            if (worst.size() > WORST_SHOTS) {
+                worst.remove(WORST_SHOTS);
+            }
+        }
+    }
+
+    /**
+     * Method stopping the analysis
+     */
+    public void release() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+        mHandler.removeCallbacksAndMessages(null);
+    }
+}
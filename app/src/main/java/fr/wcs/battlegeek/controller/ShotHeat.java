@@ -0,0 +1,142 @@
+package fr.wcs.battlegeek.controller;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Learned Heat of the Player's shots
+ *
+ * Stores, for each cell, how early the Player shot it in its past games (a first shot is worth
+ * BitBoard.CELLS, the last possible one 1, a cell never shot 0), and the count of recorded games.
+ * The sums are stored in the Shared Preferences, one entry per Player, as the Placement Prior.
+ *
+ * The heat is the AI's layout cost (see LayoutOptimizer): the AI hides its Tetrominos where the
+ * Player shoots late. Until enough games are recorded, it is mixed with the density of a uniform
+ * placements' prior.
+ */
+public class ShotHeat {
+
+    // Games needed before trusting half of the learned heat
+    private static final float HEAT_SMOOTHING = 3;
+
+    private static final String GAMES_TAG = "Games";
+
+    private SharedPreferences mSharedPreferences;
+    private String mKey;
+
+    private int[] mSums = new int[BitBoard.CELLS];
+    private int mGamesCount = 0;
+
+    // Shots of the current game
+    private BitBoard mShot = new BitBoard();
+    private int mShotsCount = 0;
+    private int[] mGameSums = new int[BitBoard.CELLS];
+
+    /**
+     * Constructor loading the Player's sums
+     * @param context the application's Context
+     */
+    public ShotHeat(Context context) {
+        mSharedPreferences = context.getSharedPreferences(Settings.FILE_NAME, MODE_PRIVATE);
+        mKey = Settings.SHOT_HEAT_TAG + mSharedPreferences.getString(Settings.UID, "");
+        load();
+    }
+
+    private void load() {
+        mGamesCount = mSharedPreferences.getInt(mKey + GAMES_TAG, 0);
+        String sums = mSharedPreferences.getString(mKey, null);
+        if (sums == null) {
+            return;
+        }
+        String[] values = sums.split(",");
+        if (values.length != mSums.length) {
+            mGamesCount = 0;
+            return;
+        }
+        for (int cell = 0; cell < mSums.length; cell++) {
+            mSums[cell] = Integer.parseInt(values[cell]);
+        }
+    }
+
+    private void save() {
+        StringBuilder sums = new StringBuilder();
+        for (int sum : mSums) {
+            if (sums.length() > 0) {
+                sums.append(',');
+            }
+            sums.append(sum);
+        }
+        mSharedPreferences.edit()
+                .putString(mKey, sums.toString())
+                .putInt(mKey + GAMES_TAG, mGamesCount)
+                .apply();
+    }
+
+    /**
+     * Method adding a Player's shot to the current game
+     * @param x
+     * @param y
+     */
+    public void addShot(int x, int y) {
+        int cell = BitBoard.index(x, y);
+        if (mShot.get(cell)) {
+            return;
+        }
+        mShot.set(cell);
+        mGameSums[cell] = BitBoard.CELLS - mShotsCount++;
+    }
+
+    /**
+     * Method recording the shots of the current game, once it is over
+     */
+    public void record() {
+        if (mShotsCount == 0) {
+            return;
+        }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            mSums[cell] += mGameSums[cell];
+            mGameSums[cell] = 0;
+        }
+        mShot.clear();
+        mShotsCount = 0;
+        mGamesCount++;
+        save();
+    }
+
+    /**
+     * Method returning the count of recorded games
+     * @return
+     */
+    public int getGamesCount() {
+        return mGamesCount;
+    }
+
+    /**
+     * Method returning the heat of each cell: the learned heat mixed with the density of the
+     * placements' prior, and scaled as this density
+     * @return
+     */
+    public float[] getHeat() {
+        DensityMap densityMap = new DensityMap();
+        float densities = 0;
+        long total = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            densities += densityMap.getDensity(cell);
+            total += mSums[cell];
+        }
+        float confidence = total == 0 ? 0 : mGamesCount / (mGamesCount + HEAT_SMOOTHING);
+        float[] heat = new float[BitBoard.CELLS];
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            heat[cell] = (1 - confidence) * densityMap.getDensity(cell);
+            if (confidence > 0) {
+                heat[cell] += confidence * mSums[cell] * densities / total;
+            }
+        }
+        return heat;
+    }
+}
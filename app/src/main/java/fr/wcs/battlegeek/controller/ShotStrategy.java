@@ -0,0 +1,49 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import fr.wcs.battlegeek.model.Result;
+
+/**
+ * Strategy choosing the AI's shots
+ *
+ * The AI keeps the knowledge of the Player's Map (Storage Map, Density Map...) and processes the
+ * results before passing them to its strategy: a strategy reads the knowledge through the AI, and
+ * keeps its own state (candidate cells, targets...), reset when the AI starts a game with it.
+ * The strategies are created by name or by Level (see StrategyRegistry).
+ */
+public interface ShotStrategy {
+
+    /**
+     * Factory of a registered strategy
+     */
+    interface Factory {
+        ShotStrategy create();
+    }
+
+    /**
+     * Method returning the AI's next shot
+     * @param ai the AI playing
+     * @return the coordinates
+     */
+    Point play(AI ai);
+
+    /**
+     * Method called after the AI processed the result of its shot
+     * @param ai the AI playing
+     * @param result
+     */
+    void onResult(AI ai, Result result);
+
+    /**
+     * Method clearing the strategy's state, when the AI starts a game with it
+     * @param ai the AI playing
+     */
+    void reset(AI ai);
+
+    /**
+     * Method returning a copy of the strategy, for the AI's copies (speculative moves)
+     * @return a copy, or the strategy itself if it has no state
+     */
+    ShotStrategy copy();
+}
@@ -0,0 +1,103 @@
+package fr.wcs.battlegeek.controller;
+
+/**
+ * Skill of each AI Level
+ *
+ * Each Level mixes a strong move and a weak move: the skill is the probability of the strong one.
+ * Level I: its own move, or a random shot.
+ * Level II: its own move, or a random shot.
+ * Level III: a Block of the Player's Map (cheat), or the Level II's move.
+ * The other Levels always play their own move.
+ *
+ * The curves of the mean count of shots needed to clear the predefined Maps, for a grid of
+ * skills, are computed by simulation (see SkillCalibration in the Android Tests) and kept here:
+ * the skill giving any count of shots is interpolated from them, without simulating on the device.
+ */
+public class SkillTable {
+
+    // Count of skills of the curves: 0, 0.05, ... 1
+    public static final int POINTS = 21;
+
+    // Mean count of shots for each skill of the grid, indexed by ordinal (null: not calibrated)
+    private static final float[][] CURVES = {
+            {97.47f, 95.33f, 94.70f, 93.99f, 93.36f, 92.55f, 91.52f, 90.35f, 89.35f, 88.03f, 86.65f,
+                    85.01f, 83.36f, 81.65f, 79.93f, 78.75f, 77.24f, 76.53f, 75.64f, 74.91f, 74.21f},
+            {97.53f, 94.77f, 91.70f, 87.87f, 83.38f, 78.97f, 74.77f, 70.92f, 67.68f, 65.01f, 62.77f,
+                    60.41f, 58.59f, 56.81f, 55.22f, 53.96f, 52.74f, 51.52f, 50.46f, 49.31f, 48.36f},
+            {48.36f, 46.33f, 44.64f, 43.21f, 41.88f, 40.72f, 39.66f, 38.71f, 37.65f, 36.73f, 35.79f,
+                    34.98f, 34.07f, 33.27f, 32.47f, 31.69f, 30.91f, 30.16f, 29.44f, 28.69f, 28.00f},
+            null,
+            null
+    };
+
+    // Target mean count of shots of each Level, indexed by ordinal (0: not calibrated)
+    // The Levels keep their own strength: Level I and II their own move, and Level III the
+    // Level II's move, as before the skills. The Difficulty Controller moves away from them.
+    public static final float[] TARGETS = {
+            CURVES[0][POINTS - 1],
+            CURVES[1][POINTS - 1],
+            CURVES[1][POINTS - 1],
+            0,
+            0
+    };
+
+    /**
+     * Method returning the skill of the Level, giving its target count of shots
+     * @param level
+     * @return the probability of the strong move
+     */
+    public static float getSkill(AI.Level level) {
+        return getSkill(level, TARGETS[level.ordinal()]);
+    }
+
+    /**
+     * Method checking if the Level's skill can be tuned
+     * @param level
+     * @return
+     */
+    public static boolean isCalibrated(AI.Level level) {
+        return CURVES[level.ordinal()] != null;
+    }
+
+    /**
+     * Method returning the Level's mean count of shots with the skill
+     * @param level a calibrated Level
+     * @param skill
+     * @return
+     */
+    public static float getExpectedShots(AI.Level level, float skill) {
+        float[] curve = CURVES[level.ordinal()];
+        float position = Math.max(0, Math.min(1, skill)) * (POINTS - 1);
+        int low = Math.min((int) position, POINTS - 2);
+        return curve[low] + (position - low) * (curve[low + 1] - curve[low]);
+    }
+
+    /**
+     * Method returning the skill giving the mean count of shots
+     * The curve decreases with the skill, so it is searched by dichotomy
+     * @param level
+     * @param shots
+     * @return the skill, between 0 and 1 (1 for the Levels not calibrated)
+     */
+    public static float getSkill(AI.Level level, float shots) {
+        float[] curve = CURVES[level.ordinal()];
+        if (curve == null || shots <= curve[POINTS - 1]) {
+            return 1;
+        }
+        if (shots >= curve[0]) {
+            return 0;
+        }
+        int low = 0;
+        int high = POINTS - 1;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (curve[middle] >= shots) {
+                low = middle;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return (low + (curve[low] - shots) / (curve[low] - curve[high])) / (POINTS - 1);
+    }
+}
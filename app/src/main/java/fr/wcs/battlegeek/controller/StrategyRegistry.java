@@ -0,0 +1,238 @@
+package fr.wcs.battlegeek.controller;
+
+import android.graphics.Point;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeSet;
+
+import fr.wcs.battlegeek.model.Result;
+
+/**
+ * Registry of the AI's Shot Strategies, by name and by Level
+ *
+ * The built-in strategies:
+ * random: any cell not played yet
+ * huntTarget: random shots among the probable cells, then around the touched cells (Level I,
+ * see HuntTargetStrategy)
+ * probable: the probable cells, then the touched Shape's possible layouts (Level II, see
+ * ProbableStrategy)
+ * cheat: the Player's Map, given to the AI (Level III, see CheatStrategy)
+ * impossible: the Player's Map, shot after shot (Level Impossible, see ImpossibleStrategy)
+ * expert: the Level Expert, with the AI's Engine
+ * density, sampling, entropy, lookahead: the Level Expert, with the Engine
+ * portfolio: density, entropy and lookahead racing on the move's time (see PortfolioStrategy)
+ * levelI, levelII, levelIII: the Levels' strong move, or their weak move (see SkillTable)
+ *
+ * Other strategies can be registered, and played by name (simulations, benchmarks...).
+ */
+public class StrategyRegistry {
+
+    private static final HashMap<String, ShotStrategy.Factory> sFactories = new HashMap<>();
+    private static final EnumMap<AI.Level, String> sLevels = new EnumMap<>(AI.Level.class);
+
+    /**
+     * Strategy without state of its own, playing on the AI's knowledge
+     */
+    private static abstract class Move implements ShotStrategy, ShotStrategy.Factory {
+        @Override
+        public void onResult(AI ai, Result result) {
+        }
+
+        @Override
+        public void reset(AI ai) {
+        }
+
+        @Override
+        public ShotStrategy copy() {
+            return this;
+        }
+
+        @Override
+        public ShotStrategy create() {
+            return this;
+        }
+    }
+
+    /**
+     * Strategy of the Level Expert with an Engine
+     */
+    private static class Expert extends Move {
+        private AI.Engine mEngine;
+
+        private Expert(AI.Engine engine) {
+            mEngine = engine;
+        }
+
+        @Override
+        public Point play(AI ai) {
+            ai.setEngine(mEngine);
+            return ai.playLevelExpert();
+        }
+    }
+
+    /**
+     * Strategy playing the strong strategy with the AI's skill, or the weak one
+     */
+    private static class Skilled implements ShotStrategy {
+        private ShotStrategy mStrong;
+        private ShotStrategy mWeak;
+
+        private Skilled(ShotStrategy strong, ShotStrategy weak) {
+            mStrong = strong;
+            mWeak = weak;
+        }
+
+        @Override
+        public Point play(AI ai) {
+            return ai.isSkilled() ? mStrong.play(ai) : mWeak.play(ai);
+        }
+
+        @Override
+        public void onResult(AI ai, Result result) {
+            mStrong.onResult(ai, result);
+            mWeak.onResult(ai, result);
+        }
+
+        @Override
+        public void reset(AI ai) {
+            mStrong.reset(ai);
+            mWeak.reset(ai);
+        }
+
+        @Override
+        public ShotStrategy copy() {
+            return new Skilled(mStrong.copy(), mWeak.copy());
+        }
+    }
+
+    static {
+        register("random", new Move() {
+            @Override
+            public Point play(AI ai) {
+                return ai.playRandom();
+            }
+        });
+        register("huntTarget", new ShotStrategy.Factory() {
+            @Override
+            public ShotStrategy create() {
+                return new HuntTargetStrategy();
+            }
+        });
+        register("probable", new ShotStrategy.Factory() {
+            @Override
+            public ShotStrategy create() {
+                return new ProbableStrategy();
+            }
+        });
+        register("cheat", new ShotStrategy.Factory() {
+            @Override
+            public ShotStrategy create() {
+                return new CheatStrategy();
+            }
+        });
+        register("impossible", new ShotStrategy.Factory() {
+            @Override
+            public ShotStrategy create() {
+                return new ImpossibleStrategy();
+            }
+        });
+        register("expert", new Move() {
+            @Override
+            public Point play(AI ai) {
+                return ai.playLevelExpert();
+            }
+        });
+        register("density", new Expert(AI.Engine.DENSITY));
+        register("sampling", new Expert(AI.Engine.SAMPLING));
+        register("entropy", new Expert(AI.Engine.ENTROPY));
+        register("lookahead", new Expert(AI.Engine.LOOKAHEAD));
+        register("portfolio", new ShotStrategy.Factory() {
+            @Override
+            public ShotStrategy create() {
+                return new PortfolioStrategy("density", "entropy", "lookahead");
+            }
+        });
+        registerSkilled("levelI", "huntTarget", "random");
+        registerSkilled("levelII", "probable", "random");
+        registerSkilled("levelIII", "cheat", "probable");
+
+        register(AI.Level.I, "levelI");
+        register(AI.Level.II, "levelII");
+        register(AI.Level.III, "levelIII");
+        register(AI.Level.IMPOSSIBLE, "impossible");
+        register(AI.Level.EXPERT, "expert");
+    }
+
+    /**
+     * Method registering a strategy, replacing the one with the same name
+     * @param name
+     * @param factory
+     */
+    public static synchronized void register(String name, ShotStrategy.Factory factory) {
+        sFactories.put(name, factory);
+    }
+
+    /**
+     * Method registering a strategy mixing two registered strategies with the AI's skill
+     * @param name
+     * @param strong the name of the strategy played with the skill's probability
+     * @param weak the name of the other strategy
+     */
+    public static void registerSkilled(String name, final String strong, final String weak) {
+        register(name, new ShotStrategy.Factory() {
+            @Override
+            public ShotStrategy create() {
+                return new Skilled(StrategyRegistry.create(strong), StrategyRegistry.create(weak));
+            }
+        });
+    }
+
+    /**
+     * Method setting the strategy of the Level
+     * @param level
+     * @param name the name of a registered strategy
+     */
+    public static synchronized void register(AI.Level level, String name) {
+        sLevels.put(level, name);
+    }
+
+    /**
+     * Method creating the registered strategy
+     * @param name
+     * @return
+     * @throws IllegalArgumentException if no strategy has the name
+     */
+    public static ShotStrategy create(String name) {
+        ShotStrategy.Factory factory;
+        synchronized (StrategyRegistry.class) {
+            factory = sFactories.get(name);
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+        return factory.create();
+    }
+
+    /**
+     * Method creating the strategy of the Level
+     * @param level
+     * @return
+     */
+    public static ShotStrategy create(AI.Level level) {
+        String name;
+        synchronized (StrategyRegistry.class) {
+            name = sLevels.get(level);
+        }
+        return create(name);
+    }
+
+    /**
+     * Method returning the names of the registered strategies
+     * @return the sorted names
+     */
+    public static synchronized Set<String> getNames() {
+        return new TreeSet<>(sFactories.keySet());
+    }
+}
@@ -0,0 +1,119 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded Cache of the AI's decisions, shared by all the AIs
+ *
+ * Maps a knowledge state (its Zobrist Hash, see ZobristHash) to the scored moves computed for it.
+ * The same early states come back game after game, so their moves are not computed again.
+ * When the Cache is full, the least recently used state is dropped.
+ */
+public class TranspositionCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static TranspositionCache sInstance = null;
+
+    /**
+     * Scored moves of a state: the cells' indexes and their scores
+     */
+    public static class ScoredMoves {
+        private final int[] mMoves;
+        private final float[] mScores;
+
+        public ScoredMoves(int[] moves, float[] scores) {
+            mMoves = moves;
+            mScores = scores;
+        }
+
+        public int getMovesCount() {
+            return mMoves.length;
+        }
+
+        public int getMove(int i) {
+            return mMoves[i];
+        }
+
+        public float getScore(int i) {
+            return mScores[i];
+        }
+    }
+
+    private int mCapacity = DEFAULT_CAPACITY;
+    private int mHits = 0;
+    private int mMisses = 0;
+
+    // Access ordered: the eldest entry is the least recently used
+    private LinkedHashMap<Long, ScoredMoves> mEntries = new LinkedHashMap<Long, ScoredMoves>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ScoredMoves> eldest) {
+            return size() > mCapacity;
+        }
+    };
+
+    /**
+     * Method returning the shared Cache, created on first call
+     * @return
+     */
+    public static synchronized TranspositionCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new TranspositionCache();
+        }
+        return sInstance;
+    }
+
+    private TranspositionCache() {
+    }
+
+    /**
+     * Method returning the scored moves of the state
+     * @param hash the state's hash
+     * @return the moves, null if the state is not in the Cache
+     */
+    public synchronized ScoredMoves get(long hash) {
+        ScoredMoves moves = mEntries.get(hash);
+        if (moves == null) {
+            mMisses++;
+        }
+        else {
+            mHits++;
+        }
+        return moves;
+    }
+
+    public synchronized void put(long hash, ScoredMoves moves) {
+        mEntries.put(hash, moves);
+    }
+
+    /**
+     * Method setting the maximal count of states, the least recently used are dropped
+     * @param capacity
+     */
+    public synchronized void setCapacity(int capacity) {
+        mCapacity = capacity;
+        while (mEntries.size() > mCapacity) {
+            Long eldest = mEntries.keySet().iterator().next();
+            mEntries.remove(eldest);
+        }
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mHits = 0;
+        mMisses = 0;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized int getHits() {
+        return mHits;
+    }
+
+    public synchronized int getMisses() {
+        return mMisses;
+    }
+}
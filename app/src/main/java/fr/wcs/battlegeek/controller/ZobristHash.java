@@ -0,0 +1,98 @@
+package fr.wcs.battlegeek.controller;
+
+import java.util.Random;
+
+import fr.wcs.battlegeek.model.Result;
+import fr.wcs.battlegeek.model.ShapeCatalog;
+import fr.wcs.battlegeek.utils.BitBoard;
+
+/**
+ * Zobrist Hash of the AI's knowledge: the Storage Map and the drown Shapes
+ *
+ * Each (cell, result) pair and each drown Shape has a random 64 bits key, the hash is the xor of
+ * the keys of the known facts. A shot's result is added in constant time, and the same knowledge
+ * reached by different shots orders gives the same hash.
+ */
+public class ZobristHash {
+
+    // Keys of the cells' results (indexed by the Shape's index, then a miss), and of the drown
+    // Shapes, for any catalog. The seed is fixed so the hashes are the same from one game to
+    // another.
+    private static final long[][] CELLS_KEYS = new long[BitBoard.CELLS][ShapeCatalog.MAX_SHAPES];
+    private static final long[] MISS_KEYS = new long[BitBoard.CELLS];
+    private static final long[] DROWN_KEYS = new long[ShapeCatalog.MAX_SHAPES];
+
+    // The keys of the seven Tetrominos are drawn first, in the order the Opening Book was built with
+    private static final int TETROMINOS = 7;
+
+    static {
+        Random random = new Random(0x5A0B215AL);
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            for (int i = 0; i < TETROMINOS; i++) {
+                CELLS_KEYS[cell][i] = random.nextLong();
+            }
+            MISS_KEYS[cell] = random.nextLong();
+        }
+        for (int i = 0; i < TETROMINOS; i++) {
+            DROWN_KEYS[i] = random.nextLong();
+        }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            for (int i = TETROMINOS; i < ShapeCatalog.MAX_SHAPES; i++) {
+                CELLS_KEYS[cell][i] = random.nextLong();
+            }
+        }
+        for (int i = TETROMINOS; i < ShapeCatalog.MAX_SHAPES; i++) {
+            DROWN_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private long mHash = 0;
+
+    /**
+     * Empty knowledge Constructor
+     */
+    public ZobristHash() {
+    }
+
+    /**
+     * Copy Constructor
+     * @param other
+     */
+    public ZobristHash(ZobristHash other) {
+        mHash = other.mHash;
+    }
+
+    /**
+     * Method adding the shot's result, and the drown Shape if any (a Bonus is a miss)
+     * @param result
+     */
+    public void update(Result result) {
+        Result.Type type = result.getType();
+        boolean missed = type == Result.Type.MISSED || type == Result.Type.BONUS;
+        update(BitBoard.index(result.getX(), result.getY()), missed ? ShapeCatalog.NONE : result.getShape());
+        if (type == Result.Type.DROWN || type == Result.Type.VICTORY) {
+            drown(result.getShape());
+        }
+    }
+
+    /**
+     * Method adding the shot's result
+     * @param cell the cell's index
+     * @param shape the touched Shape's index, NONE if missed
+     */
+    public void update(int cell, int shape) {
+        mHash ^= shape == ShapeCatalog.NONE ? MISS_KEYS[cell] : CELLS_KEYS[cell][shape];
+    }
+
+    /**
+     * Method adding the drown Shape
+     * @param shape
+     */
+    public void drown(int shape) {
+        mHash ^= DROWN_KEYS[shape];
+    }
+
+    public long getHash() {
+        return mHash;
+    }
+}
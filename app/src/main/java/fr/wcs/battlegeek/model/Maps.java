@@ -14,6 +14,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import fr.wcs.battlegeek.controller.DataController;
+import fr.wcs.battlegeek.controller.LayoutEnumerator;
+import fr.wcs.battlegeek.controller.LayoutOptimizer;
+import fr.wcs.battlegeek.utils.BitBoard;
 
 /**
  * Created by apprenti on 27/09/17.
@@ -27,8 +30,11 @@ import fr.wcs.battlegeek.controller.DataController;
  * Item's Storage Definition:
  *  - ' ' : a space character is an empty cell
  *  - '_' : an underscore character is an empty Shoted cell
- *  - A LOWERCASE Tetromino Shape Symbol's character represent a Tetromino Block not Shoted (yet...)
- *  - a lowercase Tetromino Shape symbol's character represent a Tetromino Block Shoted
+ *  - An UPPERCASE Shape Symbol's character (see ShapeCatalog) represent a Block not Shoted (yet...)
+ *  - a lowercase Shape symbol's character represent a Block Shoted
+ *
+ * The predefined and community Maps are Tetrominos' Maps: with another Fleet, the Maps are drawn
+ * randomly.
  */
 public class Maps {
 
@@ -436,10 +442,13 @@ public class Maps {
     public static ArrayList<char[][]> maps = new ArrayList<>();
 
     /**
-     * Method to get a Random Predefined Map
+     * Method to get a Random Predefined Map, or a random layout if the Fleet is not the Tetrominos
      * @return the Map as character two dimentional array
      */
     public static char[][] getMap() {
+        if(ShapeCatalog.getFleet() != ShapeCatalog.getDefault()) {
+            return LayoutOptimizer.getRandomMap();
+        }
         int random = (int)(Math.random() * (maps.size() - 1));
         char[][] map = copy(maps.get(random));
         return map;
@@ -475,8 +484,15 @@ public class Maps {
         return copy;
     }
 
-    public static void init(){
+    /**
+     * Method loading the predefined Maps only, without the community ones (offline tools)
+     */
+    public static void initPredefined() {
         maps = new ArrayList<>(Arrays.asList(_maps));
+    }
+
+    public static void init(){
+        initPredefined();
         FirebaseDatabase database = DataController.getDatabase();
         DatabaseReference mapsReference = database.getReference("Maps");
         mapsReference.keepSynced(true);
@@ -488,7 +504,12 @@ public class Maps {
                         String gsonMap = data.getValue(String.class);
                         if(isNewMap(gsonMap)) {
                             char[][] map = gson.fromJson(gsonMap, char[][].class);
-                            maps.add(map);
+                            if(isValidMap(map)) {
+                                maps.add(map);
+                            }
+                            else {
+                                Log.w(TAG, "onDataChange: Invalid Map: " + gsonMap);
+                            }
                         }
                     }
                 }
@@ -521,6 +542,45 @@ public class Maps {
         });
     }
 
+    /**
+     * Method checking that the Map contains exactly one legal placement of each Shape of the Fleet
+     * @param map
+     * @return
+     */
+    public static boolean isValidMap(char[][] map) {
+        if(map == null || map.length != Settings.GRID_SIZE) {
+            return false;
+        }
+        // The Map is fully known: the Shapes' Blocks are touched cells, the others are missed
+        ShapeCatalog catalog = ShapeCatalog.getFleet();
+        BitBoard misses = new BitBoard();
+        BitBoard[] shapesHits = new BitBoard[catalog.getShapesCount()];
+        boolean[] shapes = new boolean[catalog.getShapesCount()];
+        for (int i = 0; i < shapes.length; i++) {
+            shapesHits[i] = new BitBoard();
+            shapes[i] = true;
+        }
+        for (int y = 0; y < Settings.GRID_SIZE; y++) {
+            if(map[y] == null || map[y].length != Settings.GRID_SIZE) {
+                return false;
+            }
+            for (int x = 0; x < Settings.GRID_SIZE; x++) {
+                char symbol = map[y][x];
+                if(symbol == ' ' || Bonus.getBonus(symbol) != null) {
+                    misses.set(x, y);
+                    continue;
+                }
+                int shape = Character.isUpperCase(symbol) ? catalog.indexOf(symbol) : ShapeCatalog.NONE;
+                if(shape == ShapeCatalog.NONE) {
+                    return false;
+                }
+                shapesHits[shape].set(x, y);
+            }
+        }
+        // Exactly one layout
+        return new LayoutEnumerator(misses, shapesHits, shapes).count(2) == 1;
+    }
+
     private static boolean isNewMap(String mapJson) {
         for(char[][] m : maps) {
             String jm = gson.toJson(m);
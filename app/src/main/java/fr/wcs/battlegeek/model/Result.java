@@ -4,8 +4,6 @@ import android.support.annotation.Nullable;
 
 import java.util.Comparator;
 
-import fr.wcs.battlegeek.ui.Tetromino;
-
 /**
  * Created by adphi on 03/10/17.
  */
@@ -23,7 +21,7 @@ public class Result {
     }
 
     // Shape and Type attributes
-    private Tetromino.Shape mShape;
+    private int mShape;
     private Type mType;
     private Bonus.Type mBonusType = null;
     private int x;
@@ -32,10 +30,11 @@ public class Result {
      * Constructor of a Result Object
      * @param x
      * @param y
-     * @param shape the Shape of the Touched Tetromino (NONE if Missed)
+     * @param shape the Shape of the Touched Tetromino, its index in the Fleet's catalog
+     *              (ShapeCatalog.NONE if Missed)
      * @param type the Result Type
      */
-    public Result(int x, int y, Tetromino.Shape shape, Type type, @Nullable Bonus.Type bonusType) {
+    public Result(int x, int y, int shape, Type type, @Nullable Bonus.Type bonusType) {
         this.x = x;
         this.y = y;
         mShape = shape;
@@ -45,9 +44,9 @@ public class Result {
 
     /**
      * Result's Shape getter
-     * @return
+     * @return the Shape's index in the Fleet's catalog, ShapeCatalog.NONE if Missed
      */
-    public Tetromino.Shape getShape() {
+    public int getShape() {
         return mShape;
     }
 
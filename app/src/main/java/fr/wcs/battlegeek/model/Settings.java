@@ -26,11 +26,15 @@ public class Settings {
     public static final String UID = "uidFirebase";
     public static final String PLAYER_NAME = "PlayerName";
 
-    public static final int LEVEL_III_PROBABILITY = 70;
-
     public static final String VIBRATE_TAG = "VibrateState";
 
     public static final String BLINK_TAG = "BlinkState";
 
+    public static final String PLACEMENT_PRIOR_TAG = "PlacementPrior";
+
+    public static final String SHOT_HEAT_TAG = "ShotHeat";
+
+    public static final String DIFFICULTY_TAG = "Difficulty";
+
     public static final int ANIMATION_DEFAULT = ANIMATION_SLOW;
 }
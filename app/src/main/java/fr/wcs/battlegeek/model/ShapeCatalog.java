@@ -0,0 +1,266 @@
+package fr.wcs.battlegeek.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Catalog of the Fleet's Shapes, defined as data
+ *
+ * Each Shape is defined by its symbol and one of its orientations, the rows separated by '/',
+ * 'X' for a Block and '.' for an empty cell: "T:XXX/.X." is the Tetromino T.
+ * The other orientations are generated by clockwise rotations, the duplicates removed. The Shapes
+ * are not mirrored: L and J are two Shapes.
+ *
+ * The game plays the Fleet's catalog (see setFleet), by default the seven Tetrominos. The game
+ * (Results, GameController, Density Map, AI, Views) identifies a Shape by its index in the Fleet's
+ * catalog, NONE for no Shape, so any catalog can be played: pentominoes, mixed sizes...
+ * The symbols are letters, so a catalog holds at most MAX_SHAPES Shapes.
+ */
+public class ShapeCatalog {
+
+    // Index of no Shape (a missed shot, an empty cell)
+    public static final int NONE = -1;
+
+    // Maximal count of Shapes: one per letter
+    public static final int MAX_SHAPES = 26;
+
+    private static final String[] TETROMINOS = {
+            "I:XXXX",
+            "O:XX/XX",
+            "T:XXX/.X.",
+            "J:XXX/..X",
+            "L:XXX/X..",
+            "S:.XX/XX.",
+            "Z:XX./.XX"
+    };
+
+    private static ShapeCatalog sDefault = null;
+    private static ShapeCatalog sFleet = null;
+
+    private final char[] mSymbols;
+    private final int[] mSizes;
+    private final ArrayList<ArrayList<int[][]>> mRotations = new ArrayList<>();
+    private final StringBuilder mSignature = new StringBuilder();
+
+    // Shape's index of each symbol (upper case), NONE if none
+    private final int[] mIndexes = new int[128];
+
+    /**
+     * Method returning the catalog of the seven Tetrominos, the game's default Fleet
+     * @return the catalog: I, O, T, J, L, S, Z
+     */
+    public static synchronized ShapeCatalog getDefault() {
+        if (sDefault == null) {
+            sDefault = new ShapeCatalog(TETROMINOS);
+        }
+        return sDefault;
+    }
+
+    /**
+     * Method returning the catalog of the game's Fleet
+     * @return the catalog set by setFleet, the default one if none
+     */
+    public static synchronized ShapeCatalog getFleet() {
+        return sFleet == null ? getDefault() : sFleet;
+    }
+
+    /**
+     * Method setting the catalog of the game's Fleet, before the game starts: the Maps, the
+     * Game Controllers and the AIs built afterwards play it
+     * @param catalog the catalog, null for the default one
+     */
+    public static synchronized void setFleet(ShapeCatalog catalog) {
+        sFleet = catalog;
+    }
+
+    /**
+     * Constructor
+     * @param definitions the Shapes' definitions, as "symbol:rows" (see above)
+     * @throws IllegalArgumentException if a definition is not valid
+     */
+    public ShapeCatalog(String... definitions) {
+        if (definitions.length > MAX_SHAPES) {
+            throw new IllegalArgumentException("Too many Shapes: " + definitions.length);
+        }
+        Arrays.fill(mIndexes, NONE);
+        mSymbols = new char[definitions.length];
+        mSizes = new int[definitions.length];
+        for (int i = 0; i < definitions.length; i++) {
+            String definition = definitions[i];
+            if (definition.length() < 3 || definition.charAt(1) != ':') {
+                throw new IllegalArgumentException("Invalid Shape: " + definition);
+            }
+            char symbol = Character.toUpperCase(definition.charAt(0));
+            if (symbol >= mIndexes.length || !Character.isLetter(symbol) || mIndexes[symbol] != NONE) {
+                throw new IllegalArgumentException("Invalid Shape's symbol: " + definition);
+            }
+            int[][] matrix = parse(definition);
+            mSymbols[i] = symbol;
+            mIndexes[symbol] = i;
+            for (int[] row : matrix) {
+                for (int block : row) {
+                    mSizes[i] += block;
+                }
+            }
+            mRotations.add(getRotations(matrix));
+            if (i > 0) {
+                mSignature.append(',');
+            }
+            mSignature.append(symbol).append(':');
+            for (int y = 0; y < matrix.length; y++) {
+                for (int block : matrix[y]) {
+                    mSignature.append(block == 1 ? 'X' : '.');
+                }
+                mSignature.append(y < matrix.length - 1 ? "/" : "");
+            }
+        }
+    }
+
+    /**
+     * Method parsing the orientation of the definition
+     * @param definition
+     * @return the Shape's matrix, trimmed
+     */
+    private static int[][] parse(String definition) {
+        String[] rows = definition.substring(2).split("/");
+        int width = rows[0].length();
+        int[][] matrix = new int[rows.length][width];
+        for (int y = 0; y < rows.length; y++) {
+            if (rows[y].length() != width) {
+                throw new IllegalArgumentException("Invalid Shape's rows: " + definition);
+            }
+            for (int x = 0; x < width; x++) {
+                char c = rows[y].charAt(x);
+                if (c != 'X' && c != '.') {
+                    throw new IllegalArgumentException("Invalid Shape's cell: " + definition);
+                }
+                matrix[y][x] = c == 'X' ? 1 : 0;
+            }
+        }
+        matrix = trim(matrix);
+        if (matrix.length == 0) {
+            throw new IllegalArgumentException("Empty Shape: " + definition);
+        }
+        return matrix;
+    }
+
+    /**
+     * Method removing the empty rows and columns around the Blocks
+     * @param matrix
+     * @return
+     */
+    private static int[][] trim(int[][] matrix) {
+        int top = matrix.length, bottom = -1, left = matrix[0].length, right = -1;
+        for (int y = 0; y < matrix.length; y++) {
+            for (int x = 0; x < matrix[y].length; x++) {
+                if (matrix[y][x] == 1) {
+                    top = Math.min(top, y);
+                    bottom = Math.max(bottom, y);
+                    left = Math.min(left, x);
+                    right = Math.max(right, x);
+                }
+            }
+        }
+        if (bottom == -1) {
+            return new int[0][];
+        }
+        int[][] trimmed = new int[bottom - top + 1][];
+        for (int y = top; y <= bottom; y++) {
+            trimmed[y - top] = Arrays.copyOfRange(matrix[y], left, right + 1);
+        }
+        return trimmed;
+    }
+
+    /**
+     * Method generating the distinct orientations, by clockwise rotations
+     * @param matrix the first orientation
+     * @return
+     */
+    private static ArrayList<int[][]> getRotations(int[][] matrix) {
+        ArrayList<int[][]> rotations = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            boolean known = false;
+            for (int[][] rotation : rotations) {
+                known |= Arrays.deepEquals(rotation, matrix);
+            }
+            if (!known) {
+                rotations.add(matrix);
+            }
+            int height = matrix.length;
+            int width = matrix[0].length;
+            int[][] rotated = new int[width][height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    rotated[x][height - 1 - y] = matrix[y][x];
+                }
+            }
+            matrix = rotated;
+        }
+        return rotations;
+    }
+
+    /**
+     * Method returning the count of Shapes
+     * @return
+     */
+    public int getShapesCount() {
+        return mSymbols.length;
+    }
+
+    /**
+     * Method returning the catalog's normalized definitions, to tell catalogs apart
+     * @return the definitions, trimmed, separated by ','
+     */
+    public String getSignature() {
+        return mSignature.toString();
+    }
+
+    /**
+     * Method returning the count of Blocks of all the Shapes
+     * @return
+     */
+    public int getFleetSize() {
+        int size = 0;
+        for (int shapeSize : mSizes) {
+            size += shapeSize;
+        }
+        return size;
+    }
+
+    /**
+     * Method returning the Shape's symbol
+     * @param shape the Shape's index
+     * @return the upper case symbol
+     */
+    public char getSymbol(int shape) {
+        return mSymbols[shape];
+    }
+
+    /**
+     * Method returning the Shape's count of Blocks
+     * @param shape the Shape's index
+     * @return
+     */
+    public int getSize(int shape) {
+        return mSizes[shape];
+    }
+
+    /**
+     * Method returning the Shape's orientations
+     * @param shape the Shape's index
+     * @return the matrices, 1 for a Block (not to be modified)
+     */
+    public ArrayList<int[][]> getRotations(int shape) {
+        return mRotations.get(shape);
+    }
+
+    /**
+     * Method returning the Shape of the symbol
+     * @param symbol the symbol, upper case or lower case (touched Block)
+     * @return the Shape's index, NONE if no Shape has the symbol
+     */
+    public int indexOf(char symbol) {
+        symbol = Character.toUpperCase(symbol);
+        return symbol < mIndexes.length ? mIndexes[symbol] : NONE;
+    }
+}
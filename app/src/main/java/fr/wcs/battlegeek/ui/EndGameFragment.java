@@ -0,0 +1,43 @@
+package fr.wcs.battlegeek.ui;
+
+import android.app.AlertDialog;
+import android.app.DialogFragment;
+
+/**
+ * End Game's Dialog, showing the analysis of the Player's shots under its message
+ * The analysis can come before or after the Dialog's creation
+ */
+public abstract class EndGameFragment extends DialogFragment {
+
+    private AlertDialog mDialog = null;
+    private CharSequence mAnalysis = "";
+
+    /**
+     * @return the String resource of the End Game's message
+     */
+    protected abstract int getMessage();
+
+    /**
+     * Method setting the created Dialog
+     * @param dialog
+     */
+    protected void setDialog(AlertDialog dialog) {
+        mDialog = dialog;
+        updateMessage();
+    }
+
+    /**
+     * Method setting the analysis of the Player's shots
+     * @param analysis
+     */
+    public void setAnalysis(CharSequence analysis) {
+        mAnalysis = analysis;
+        updateMessage();
+    }
+
+    private void updateMessage() {
+        if (mDialog != null && isAdded()) {
+            mDialog.setMessage(getString(getMessage()) + "\n\n" + mAnalysis);
+        }
+    }
+}
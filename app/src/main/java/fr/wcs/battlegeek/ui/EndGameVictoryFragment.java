@@ -2,7 +2,6 @@ package fr.wcs.battlegeek.ui;
 
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.app.DialogFragment;
 import android.content.DialogInterface;
 import android.os.Bundle;
 import android.view.Gravity;
@@ -14,7 +13,12 @@ import fr.wcs.battlegeek.R;
  * Created by Germain on 05/10/17.
  */
 
-public class EndGameVictoryFragment extends DialogFragment {
+public class EndGameVictoryFragment extends EndGameFragment {
+
+    @Override
+    protected int getMessage() {
+        return R.string.end_game_victory;
+    }
 
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
@@ -30,6 +34,7 @@ public class EndGameVictoryFragment extends DialogFragment {
         });
         builder.create();
         AlertDialog dialog = builder.show();
+        setDialog(dialog);
 
         TextView endGameMessage = dialog.findViewById(android.R.id.message);
         endGameMessage.setGravity(Gravity.CENTER);
@@ -2,6 +2,9 @@ package fr.wcs.battlegeek.ui;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
 import android.graphics.PointF;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
@@ -42,6 +45,10 @@ public class GameView extends View{
 
     private boolean mRandomColor = false;
 
+    // The cells suggested to the Player, drawn over the Grid
+    private ArrayList<Point> mHint = new ArrayList<>();
+    private Paint mPaintHint = new Paint();
+
 
     /**
      * Default Constructor of an View
@@ -79,6 +86,9 @@ public class GameView extends View{
     private void init() {
         this.listener = null;
         this.mGrid = new Grid(mGridSize);
+        this.mPaintHint.setStyle(Paint.Style.FILL);
+        this.mPaintHint.setColor(Color.YELLOW);
+        this.mPaintHint.setAlpha(96);
     }
 
     public void setRandomColor(boolean random) {
@@ -99,9 +109,9 @@ public class GameView extends View{
      * Method setting TOUCHED on the Grid
      * @param x the x coordinate in the Grid
      * @param y the y coordinate in the Grid
-     * @param shape the Shape of the Tetromino
+     * @param shape the Shape's index of the Tetromino
      */
-    public void setTouch(int x, int y, Tetromino.Shape shape) {
+    public void setTouch(int x, int y, int shape) {
         Tetromino.Colors color = mRandomColor ? Tetromino.getRandomColorMap().get(shape)
                 : Tetromino.getColorMap().get(shape);
         mBlocks.add(new TetrominoBlock(new PointF(x, y), color));
@@ -125,6 +135,15 @@ public class GameView extends View{
         invalidate();
     }
 
+    /**
+     * Method highlighting the cells suggested to the Player
+     * @param cells the cells' coordinates, empty to remove the hint
+     */
+    public void setHint(ArrayList<Point> cells) {
+        mHint = cells;
+        invalidate();
+    }
+
     /**
      * Method handling Player's Touched Events
      * @param event
@@ -169,6 +188,11 @@ public class GameView extends View{
         for(Block block : mBlocks){
             block.draw(canvas, 0, 0, mGrid.getCellSize());
         }
+        float cellSize = mGrid.getCellSize();
+        for (Point cell : mHint) {
+            canvas.drawRect(cell.x * cellSize, cell.y * cellSize,
+                    (cell.x + 1) * cellSize, (cell.y + 1) * cellSize, mPaintHint);
+        }
     }
 
     /**
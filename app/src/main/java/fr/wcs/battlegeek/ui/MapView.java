@@ -14,6 +14,7 @@ import java.util.HashMap;
 import fr.wcs.battlegeek.model.Bonus;
 import fr.wcs.battlegeek.model.Maps;
 import fr.wcs.battlegeek.model.Settings;
+import fr.wcs.battlegeek.model.ShapeCatalog;
 
 import static fr.wcs.battlegeek.ui.MapView.Mode.CREATE;
 import static fr.wcs.battlegeek.ui.MapView.Mode.PLAY;
@@ -195,7 +196,7 @@ public class MapView extends View {
                     }
                     else {
                         Tetromino tetromino = (Tetromino) item;
-                        char symbol = tetromino.getShape().toString().charAt(0);
+                        char symbol = tetromino.getSymbol();
                         mapData[y][x] = block.getState() == Block.State.ALIVE ? symbol
                                 : Character.toLowerCase(symbol);
                     }
@@ -246,15 +247,16 @@ public class MapView extends View {
         mItems.clear();
         ArrayList<Item> bonus = new ArrayList<>();
         // Store Blocks in a HashMap;
-        HashMap<Tetromino.Shape, ArrayList<PointF> > dict = new HashMap<>();
+        ShapeCatalog catalog = ShapeCatalog.getFleet();
+        HashMap<Integer, ArrayList<PointF> > dict = new HashMap<>();
         for (int i = 0; i < map.length; i++) {
             for (int j = 0; j < map[i].length; j++) {
                 PointF point = new PointF(j,i);
                 char symbol = map[i][j];
                 // If Tetromino
                 if(Character.isUpperCase(symbol)) {
-                    Tetromino.Shape shape = Tetromino.Shape.valueOf(String.valueOf(symbol));
-                    if( shape != Tetromino.Shape.NONE) {
+                    int shape = catalog.indexOf(symbol);
+                    if( shape != ShapeCatalog.NONE) {
                         // If the shape is not in the hashMap keys, we add it
                         if(! dict.containsKey(shape)) {
                             dict.put(shape, new ArrayList<PointF>());
@@ -267,7 +269,7 @@ public class MapView extends View {
                 // If Bonus
                 else if (symbol != ' ') {
                     Bonus.Type type = Bonus.getBonus(symbol);
-                    Tetromino itemBonus = new Tetromino(this, mGrid, j, i, Tetromino.Shape.NONE, null);
+                    Tetromino itemBonus = new Tetromino(this, mGrid, j, i, ShapeCatalog.NONE, null);
                     TetrominoBonus blockBonus = new TetrominoBonus(0, 0, type, getResources());
                     itemBonus.setBlock(blockBonus);
                     bonus.add(itemBonus);
@@ -276,7 +278,7 @@ public class MapView extends View {
         }
 
         // Get Through the hashMap to create Tetromino
-        for (Tetromino.Shape shape : dict.keySet()) {
+        for (int shape : dict.keySet()) {
             // min x and min y for offset
             int minX = Settings.GRID_SIZE;
             int minY = Settings.GRID_SIZE;
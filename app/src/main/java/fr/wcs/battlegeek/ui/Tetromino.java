@@ -8,14 +8,7 @@ import java.util.HashMap;
 
 import fr.wcs.battlegeek.R;
 import fr.wcs.battlegeek.model.Settings;
-
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.I;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.J;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.L;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.O;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.S;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.T;
-import static fr.wcs.battlegeek.ui.Tetromino.Shape.Z;
+import fr.wcs.battlegeek.model.ShapeCatalog;
 
 /**
  * Created by adphi on 27/09/17.
@@ -29,49 +22,30 @@ public class Tetromino extends Item {
         YELLOW, ORANGE, RED, PURPLE, GREEN, BLUE, LTBLUE
     }
 
-    /**
-     * Tetromino's Shape's Symbols Enumeration
-     */
-    public enum Shape {
-        I ("I"),
-        O ("O"),
-        T ("T"),
-        J ("J"),
-        L ("L"),
-        S ("S"),
-        Z ("Z"),
-        NONE ("X");
-
-        private String name = "";
-
-        Shape(String name){
-            this.name = name;
-        }
-        public String toString(){
-            return name;
-        }
-
-    }
-
     private String TAG = Settings.TAG;
-    private Shape mShape;
+    // Shape's index in the Fleet's catalog (see ShapeCatalog), NONE for a Bonus
+    private int mShape;
     private Colors mColor;
-    private static HashMap<Shape, Colors> mColorsMap = new HashMap<>();
 
-    private static HashMap<Shape, Colors> mRandomColorsMap = new HashMap<>();
+    // Catalog of the Maps below: they are built again when the Fleet changes
+    private static ShapeCatalog mCatalog = null;
 
-    private static HashMap<Shape, ArrayList<int[][]>> mTetrominoMatrixMap = new HashMap<>();
+    private static HashMap<Integer, Colors> mColorsMap = new HashMap<>();
+
+    private static HashMap<Integer, Colors> mRandomColorsMap = new HashMap<>();
+
+    private static HashMap<Integer, ArrayList<int[][]>> mTetrominoMatrixMap = new HashMap<>();
 
     private int rotationCount = 0;
 
-    public Tetromino(MapView view, Grid grid, Shape shape, @Nullable Colors color) {
+    public Tetromino(MapView view, Grid grid, int shape, @Nullable Colors color) {
         super(view, grid);
         this.mShape = shape;
         this.mColor = color;
         init();
     }
 
-    public Tetromino(MapView view, Grid grid, float x, float y, Shape shape, @Nullable Colors color) {
+    public Tetromino(MapView view, Grid grid, float x, float y, int shape, @Nullable Colors color) {
         super(view, grid, x, y);
         this.mShape = shape;
         this.mColor = color;
@@ -99,7 +73,7 @@ public class Tetromino extends Item {
 
         // Rotation Using Matrix (easier but boring)
         int[][] matrix = this.toMatrix();
-        ArrayList<int[][]> list = mTetrominoMatrixMap.get(this.mShape);
+        ArrayList<int[][]> list = getTetrominoMatrixMap().get(this.mShape);
         for (int i = 0; i < list.size(); i++) {
             if(Arrays.deepEquals(list.get(i), matrix)){
                 rotationCount = i;
@@ -113,45 +87,81 @@ public class Tetromino extends Item {
     }
 
 
+    /**
+     * Method clearing the static Maps if the Fleet changed since they were built
+     */
+    private static void checkCatalog() {
+        ShapeCatalog catalog = ShapeCatalog.getFleet();
+        if(mCatalog != catalog) {
+            mColorsMap.clear();
+            mRandomColorsMap.clear();
+            mTetrominoMatrixMap.clear();
+            mCatalog = catalog;
+        }
+    }
+
     /**
      * Static Method to get the color of a Tetromino according to its shape
-     * @return
+     * The Tetrominos keep their colors, the Shapes of another Fleet cycle through the Colors
+     * @return the Colors, by Shape's index
      */
-    public static HashMap<Shape, Colors> getColorMap() {
+    public static HashMap<Integer, Colors> getColorMap() {
+        checkCatalog();
         if(mColorsMap.isEmpty()) {
-            mColorsMap.put(I, Tetromino.Colors.LTBLUE);
-            mColorsMap.put(T, Tetromino.Colors.PURPLE);
-            mColorsMap.put(Z, Tetromino.Colors.RED);
-            mColorsMap.put(O, Tetromino.Colors.YELLOW);
-            mColorsMap.put(J, Tetromino.Colors.BLUE);
-            mColorsMap.put(L, Tetromino.Colors.ORANGE);
-            mColorsMap.put(S, Tetromino.Colors.GREEN);
+            HashMap<Character, Colors> tetrominosColors = new HashMap<>();
+            tetrominosColors.put('I', Tetromino.Colors.LTBLUE);
+            tetrominosColors.put('T', Tetromino.Colors.PURPLE);
+            tetrominosColors.put('Z', Tetromino.Colors.RED);
+            tetrominosColors.put('O', Tetromino.Colors.YELLOW);
+            tetrominosColors.put('J', Tetromino.Colors.BLUE);
+            tetrominosColors.put('L', Tetromino.Colors.ORANGE);
+            tetrominosColors.put('S', Tetromino.Colors.GREEN);
+            boolean tetrominos = mCatalog == ShapeCatalog.getDefault();
+            Colors[] colors = Colors.values();
+            for (int i = 0; i < mCatalog.getShapesCount(); i++) {
+                mColorsMap.put(i, tetrominos ? tetrominosColors.get(mCatalog.getSymbol(i)) : colors[i % colors.length]);
+            }
         }
         return mColorsMap;
     }
 
-    public static HashMap<Shape, Colors> getRandomColorMap() {
+    public static HashMap<Integer, Colors> getRandomColorMap() {
+        checkCatalog();
         if(mRandomColorsMap.isEmpty()) {
-            Shape[] shapes = Shape.values();
-            ArrayList<Colors> colors = new ArrayList<>(Arrays.asList(Colors.values()));
-            // Iterate through all shapes except the None one
-            for (int i = 0; i < shapes.length - 1; i++) {
+            ArrayList<Colors> colors = new ArrayList<>();
+            for (int i = 0; i < mCatalog.getShapesCount(); i++) {
+                // More Shapes than Colors: the Colors are drawn again
+                if(colors.isEmpty()) {
+                    colors.addAll(Arrays.asList(Colors.values()));
+                }
                 int index = (int)(Math.random() * (colors.size() -1));
-                mRandomColorsMap.put(shapes[i], colors.get(index));
+                mRandomColorsMap.put(i, colors.get(index));
                 colors.remove(index);
             }
         }
         return mRandomColorsMap;
     }
 
-    public Shape getShape() {
+    /**
+     * Method returning the Shape's index in the Fleet's catalog
+     * @return the index, NONE for a Bonus
+     */
+    public int getShape() {
         return mShape;
     }
 
-    public void setShape(Shape shape) {
+    public void setShape(int shape) {
         mShape = shape;
     }
 
+    /**
+     * Method returning the Shape's symbol in the Maps
+     * @return
+     */
+    public char getSymbol() {
+        return ShapeCatalog.getFleet().getSymbol(mShape);
+    }
+
     public Colors getColor() {
         return mColor;
     }
@@ -188,140 +198,16 @@ public class Tetromino extends Item {
         }
     }
 
-    public static  HashMap<Shape, ArrayList<int[][]>> getTetrominoMatrixMap() {
+    /**
+     * Static Method to get the orientations of each Shape, generated from the Fleet's definitions
+     * @return the orientations, by Shape's index
+     */
+    public static  HashMap<Integer, ArrayList<int[][]>> getTetrominoMatrixMap() {
+        checkCatalog();
         if (mTetrominoMatrixMap.isEmpty()) {
-            // Tetromino O
-            ArrayList<int[][]> listMatrixO = new ArrayList<>();
-            int[][] matrixO = new int[][]{
-                    {1, 1},
-                    {1, 1}
-            };
-            listMatrixO.add(matrixO);
-            mTetrominoMatrixMap.put(O, listMatrixO);
-
-            // Tetromino I
-            ArrayList<int[][]> listMatrixI = new ArrayList<>();
-            int[][] matrixIHorizontal = new int[][]{
-                    {1, 1, 1, 1}
-            };
-            int[][] matrixIVertical = new int[][]{
-                    {1},
-                    {1},
-                    {1},
-                    {1}
-            };
-            listMatrixI.add(matrixIHorizontal);
-            listMatrixI.add(matrixIVertical);
-            mTetrominoMatrixMap.put(I, listMatrixI);
-
-            // Tetromino L
-            ArrayList<int[][]> listMatrixL = new ArrayList<>();
-            int[][] matrixL1 = new int[][]{
-                    {1, 1, 1},
-                    {1, 0, 0}
-            };
-            int[][] matrixL2 = new int[][]{
-                    {1, 1},
-                    {0, 1},
-                    {0, 1}
-            };
-            int[][] matrixL3 = new int[][]{
-                    {0, 0, 1},
-                    {1, 1, 1}
-            };
-            int[][] matrixL4 = new int[][]{
-                    {1, 0},
-                    {1, 0},
-                    {1, 1}
-            };
-            listMatrixL.add(matrixL1);
-            listMatrixL.add(matrixL2);
-            listMatrixL.add(matrixL3);
-            listMatrixL.add(matrixL4);
-            mTetrominoMatrixMap.put(L, listMatrixL);
-
-            // Tetromino J
-            ArrayList<int[][]> listMatrixJ = new ArrayList<>();
-            int[][] matrixJ1 = new int[][]{
-                    {1, 1, 1},
-                    {0, 0, 1}
-            };
-            int[][] matrixJ2 = new int[][]{
-                    {0, 1},
-                    {0, 1},
-                    {1, 1}
-            };
-            int[][] matrixJ3 = new int[][]{
-                    {1, 0, 0},
-                    {1, 1, 1}
-            };
-            int[][] matrixJ4 = new int[][]{
-                    {1, 1},
-                    {1, 0},
-                    {1, 0}
-            };
-            listMatrixJ.add(matrixJ1);
-            listMatrixJ.add(matrixJ2);
-            listMatrixJ.add(matrixJ3);
-            listMatrixJ.add(matrixJ4);
-            mTetrominoMatrixMap.put(J, listMatrixJ);
-
-            // Tetromino T
-            ArrayList<int[][]> listMatrixT = new ArrayList<>();
-            int[][] matrixT1 = new int[][]{
-                    {1, 1, 1},
-                    {0, 1, 0}
-            };
-            int[][] matrixT2 = new int[][]{
-                    {0, 1},
-                    {1, 1},
-                    {0, 1}
-            };
-            int[][] matrixT3 = new int[][]{
-                    {0, 1, 0},
-                    {1, 1, 1}
-            };
-            int[][] matrixT4 = new int[][]{
-                    {1, 0},
-                    {1, 1},
-                    {1, 0}
-            };
-
-            listMatrixT.add(matrixT1);
-            listMatrixT.add(matrixT2);
-            listMatrixT.add(matrixT3);
-            listMatrixT.add(matrixT4);
-            mTetrominoMatrixMap.put(T, listMatrixT);
-
-            // Tetromino S
-            ArrayList<int[][]> listMatrixS = new ArrayList<>();
-            int[][] matrixS1 = new int[][]{
-                    {0, 1, 1},
-                    {1, 1, 0}
-            };
-            int[][] matrixS2 = new int[][]{
-                    {1, 0},
-                    {1, 1},
-                    {0, 1}
-            };
-            listMatrixS.add(matrixS1);
-            listMatrixS.add(matrixS2);
-            mTetrominoMatrixMap.put(S, listMatrixS);
-
-            // Tetromino Z
-            ArrayList<int[][]> listMatrixZ = new ArrayList<>();
-            int[][] matrixZ1 = new int[][]{
-                    {1, 1, 0},
-                    {0, 1, 1}
-            };
-            int[][] matrixZ2 = new int[][]{
-                    {0, 1},
-                    {1, 1},
-                    {1, 0}
-            };
-            listMatrixZ.add(matrixZ1);
-            listMatrixZ.add(matrixZ2);
-            mTetrominoMatrixMap.put(Z, listMatrixZ);
+            for (int i = 0; i < mCatalog.getShapesCount(); i++) {
+                mTetrominoMatrixMap.put(i, mCatalog.getRotations(i));
+            }
         }
         return mTetrominoMatrixMap;
     }
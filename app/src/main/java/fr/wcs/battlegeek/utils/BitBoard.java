@@ -0,0 +1,280 @@
+package fr.wcs.battlegeek.utils;
+
+import fr.wcs.battlegeek.model.Settings;
+
+/**
+ * Packed Board Mask: one bit per Grid's cell, stored in two longs (128 bits)
+ *
+ * The cell's index is y * GRID_SIZE + x, the first 64 cells are stored in the low long,
+ * the remaining ones in the high long.
+ * All the operations are done in place, so a BitBoard can be reused without any allocation.
+ */
+public class BitBoard {
+
+    public static final int CELLS = Settings.GRID_SIZE * Settings.GRID_SIZE;
+
+    // Masks of the valid bits
+    private static final long FULL_LOW = -1L;
+    private static final long FULL_HIGH = CELLS >= 128 ? -1L : (1L << (CELLS - 64)) - 1;
+
+    // Precomputed Neighbourhoods: the cell plus its 4 direct neighbours, and the 3x3 square
+    private static final long[] PLUS_LOW = new long[CELLS];
+    private static final long[] PLUS_HIGH = new long[CELLS];
+    private static final long[] SQUARE_LOW = new long[CELLS];
+    private static final long[] SQUARE_HIGH = new long[CELLS];
+
+    static {
+        BitBoard plus = new BitBoard();
+        BitBoard square = new BitBoard();
+        for (int index = 0; index < CELLS; index++) {
+            int x = getX(index);
+            int y = getY(index);
+            plus.clear();
+            square.clear();
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, Settings.GRID_SIZE - 1); i++) {
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, Settings.GRID_SIZE - 1); j++) {
+                    square.set(i, j);
+                    if (i == x || j == y) {
+                        plus.set(i, j);
+                    }
+                }
+            }
+            PLUS_LOW[index] = plus.mLow;
+            PLUS_HIGH[index] = plus.mHigh;
+            SQUARE_LOW[index] = square.mLow;
+            SQUARE_HIGH[index] = square.mHigh;
+        }
+    }
+
+    private long mLow;
+    private long mHigh;
+
+    /**
+     * Empty Board Constructor
+     */
+    public BitBoard() {
+    }
+
+    /**
+     * Raw Constructor
+     * @param low the first 64 cells
+     * @param high the remaining cells
+     */
+    public BitBoard(long low, long high) {
+        mLow = low;
+        mHigh = high & FULL_HIGH;
+    }
+
+    /**
+     * Copy Constructor
+     * @param other
+     */
+    public BitBoard(BitBoard other) {
+        mLow = other.mLow;
+        mHigh = other.mHigh;
+    }
+
+    /**
+     * Method returning the cell's index of the coordinates
+     * @param x
+     * @param y
+     * @return
+     */
+    public static int index(int x, int y) {
+        return y * Settings.GRID_SIZE + x;
+    }
+
+    public static int getX(int index) {
+        return index % Settings.GRID_SIZE;
+    }
+
+    public static int getY(int index) {
+        return index / Settings.GRID_SIZE;
+    }
+
+    public long getLow() {
+        return mLow;
+    }
+
+    public long getHigh() {
+        return mHigh;
+    }
+
+    public boolean get(int index) {
+        return index < 64 ? (mLow & (1L << index)) != 0 : (mHigh & (1L << (index - 64))) != 0;
+    }
+
+    public boolean get(int x, int y) {
+        return get(index(x, y));
+    }
+
+    public void set(int index) {
+        if (index < 64) mLow |= 1L << index;
+        else mHigh |= 1L << (index - 64);
+    }
+
+    public void set(int x, int y) {
+        set(index(x, y));
+    }
+
+    public void clear(int index) {
+        if (index < 64) mLow &= ~(1L << index);
+        else mHigh &= ~(1L << (index - 64));
+    }
+
+    public void clear(int x, int y) {
+        clear(index(x, y));
+    }
+
+    /**
+     * Clear all the cells
+     */
+    public void clear() {
+        mLow = 0;
+        mHigh = 0;
+    }
+
+    /**
+     * Set all the cells
+     */
+    public void fill() {
+        mLow = FULL_LOW;
+        mHigh = FULL_HIGH;
+    }
+
+    public void set(long low, long high) {
+        mLow = low;
+        mHigh = high & FULL_HIGH;
+    }
+
+    public void set(BitBoard other) {
+        mLow = other.mLow;
+        mHigh = other.mHigh;
+    }
+
+    /**
+     * Set the Board to the cell and its 4 direct neighbours (the Cross Fire footprint)
+     * @param index
+     */
+    public void setPlus(int index) {
+        mLow = PLUS_LOW[index];
+        mHigh = PLUS_HIGH[index];
+    }
+
+    /**
+     * Set the Board to the 3x3 square centered on the cell
+     * @param index
+     */
+    public void setSquare(int index) {
+        mLow = SQUARE_LOW[index];
+        mHigh = SQUARE_HIGH[index];
+    }
+
+    public void or(BitBoard other) {
+        mLow |= other.mLow;
+        mHigh |= other.mHigh;
+    }
+
+    public void and(BitBoard other) {
+        mLow &= other.mLow;
+        mHigh &= other.mHigh;
+    }
+
+    public void andNot(BitBoard other) {
+        mLow &= ~other.mLow;
+        mHigh &= ~other.mHigh;
+    }
+
+    /**
+     * Invert the Board (only the Grid's cells)
+     */
+    public void not() {
+        mLow = ~mLow & FULL_LOW;
+        mHigh = ~mHigh & FULL_HIGH;
+    }
+
+    public boolean intersects(BitBoard other) {
+        return (mLow & other.mLow) != 0 || (mHigh & other.mHigh) != 0;
+    }
+
+    public boolean intersects(long low, long high) {
+        return (mLow & low) != 0 || (mHigh & high) != 0;
+    }
+
+    /**
+     * Method checking if the Board contains all the cells of the other one
+     * @param other
+     * @return
+     */
+    public boolean contains(BitBoard other) {
+        return (other.mLow & ~mLow) == 0 && (other.mHigh & ~mHigh) == 0;
+    }
+
+    public boolean isEmpty() {
+        return mLow == 0 && mHigh == 0;
+    }
+
+    public int count() {
+        return Long.bitCount(mLow) + Long.bitCount(mHigh);
+    }
+
+    /**
+     * Method returning the index of the first set cell starting from the given index
+     * @param from
+     * @return the index, -1 if there is no more cell
+     */
+    public int nextSetBit(int from) {
+        if (from < 64) {
+            long low = mLow & (-1L << from);
+            if (low != 0) {
+                return Long.numberOfTrailingZeros(low);
+            }
+            from = 64;
+        }
+        if (from >= CELLS) {
+            return -1;
+        }
+        long high = mHigh & (-1L << (from - 64));
+        return high != 0 ? 64 + Long.numberOfTrailingZeros(high) : -1;
+    }
+
+    /**
+     * Method returning the index of the n-th set cell (starting from 0)
+     * @param n
+     * @return the index, -1 if there is not enough cells
+     */
+    public int getSetBit(int n) {
+        int index = nextSetBit(0);
+        while (n > 0 && index != -1) {
+            index = nextSetBit(index + 1);
+            n--;
+        }
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitBoard)) return false;
+        BitBoard other = (BitBoard) o;
+        return mLow == other.mLow && mHigh == other.mHigh;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = mLow * 31 + mHigh;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        String board = "";
+        for (int y = 0; y < Settings.GRID_SIZE; y++) {
+            for (int x = 0; x < Settings.GRID_SIZE; x++) {
+                board += get(x, y) ? '#' : '.';
+            }
+            board += "\n";
+        }
+        return board;
+    }
+}
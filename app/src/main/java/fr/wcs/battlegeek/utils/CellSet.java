@@ -0,0 +1,138 @@
+package fr.wcs.battlegeek.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Indexed Set of the Grid's cells
+ *
+ * The cells (BitBoard's indexes) are stored in a dense array, and each cell's position in the
+ * array is stored in an index, so contains, add, remove and the random pick are done in constant
+ * time: a removed cell is replaced by the last one.
+ * The order of the cells is not kept.
+ */
+public class CellSet {
+
+    private int[] mCells = new int[BitBoard.CELLS];
+    // Position of each cell in mCells, -1 if not in the Set
+    private int[] mPositions = new int[BitBoard.CELLS];
+    private int mSize = 0;
+
+    private static final Random sRandom = new Random();
+
+    /**
+     * Empty Set Constructor
+     */
+    public CellSet() {
+        Arrays.fill(mPositions, -1);
+    }
+
+    /**
+     * Copy Constructor
+     * @param other
+     */
+    public CellSet(CellSet other) {
+        System.arraycopy(other.mCells, 0, mCells, 0, other.mSize);
+        System.arraycopy(other.mPositions, 0, mPositions, 0, BitBoard.CELLS);
+        mSize = other.mSize;
+    }
+
+    /**
+     * Add all the Grid's cells
+     */
+    public void fill() {
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            mCells[cell] = cell;
+            mPositions[cell] = cell;
+        }
+        mSize = BitBoard.CELLS;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mPositions[mCells[i]] = -1;
+        }
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Method returning the cell at the position (the order is not kept by remove)
+     * @param position
+     * @return the cell's index
+     */
+    public int get(int position) {
+        return mCells[position];
+    }
+
+    public boolean contains(int cell) {
+        return mPositions[cell] != -1;
+    }
+
+    /**
+     * Add the cell
+     * @param cell
+     * @return false if the cell was already in the Set
+     */
+    public boolean add(int cell) {
+        if (mPositions[cell] != -1) {
+            return false;
+        }
+        mCells[mSize] = cell;
+        mPositions[cell] = mSize++;
+        return true;
+    }
+
+    /**
+     * Remove the cell
+     * @param cell
+     * @return false if the cell was not in the Set
+     */
+    public boolean remove(int cell) {
+        int position = mPositions[cell];
+        if (position == -1) {
+            return false;
+        }
+        int last = mCells[--mSize];
+        mCells[position] = last;
+        mPositions[last] = position;
+        mPositions[cell] = -1;
+        return true;
+    }
+
+    public void addAll(CellSet other) {
+        for (int i = 0; i < other.mSize; i++) {
+            add(other.mCells[i]);
+        }
+    }
+
+    /**
+     * Remove the cells of the mask
+     * @param mask
+     */
+    public void removeAll(BitBoard mask) {
+        for (int cell = mask.nextSetBit(0); cell != -1; cell = mask.nextSetBit(cell + 1)) {
+            remove(cell);
+        }
+    }
+
+    /**
+     * Remove a random cell
+     * @return the cell's index, -1 if the Set is empty
+     */
+    public int removeRandom() {
+        if (mSize == 0) {
+            return -1;
+        }
+        int cell = mCells[sRandom.nextInt(mSize)];
+        remove(cell);
+        return cell;
+    }
+}
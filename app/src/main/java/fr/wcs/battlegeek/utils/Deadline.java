@@ -0,0 +1,40 @@
+package fr.wcs.battlegeek.utils;
+
+/**
+ * Point in time after which a computation must return its best result found so far
+ */
+public class Deadline {
+
+    // A Deadline that never expires
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long mEnd;
+
+    /**
+     * Constructor
+     * @param millis the time budget from now, in milliseconds
+     */
+    public Deadline(long millis) {
+        long now = System.nanoTime();
+        mEnd = millis >= (Long.MAX_VALUE - now) / 1000000L ? Long.MAX_VALUE : now + millis * 1000000L;
+    }
+
+    /**
+     * Method checking if the time budget is spent
+     * @return
+     */
+    public boolean isExpired() {
+        return mEnd != Long.MAX_VALUE && System.nanoTime() >= mEnd;
+    }
+
+    /**
+     * Method returning the remaining time
+     * @return the remaining time in nanoseconds, 0 if expired
+     */
+    public long getRemainingNanos() {
+        if (mEnd == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, mEnd - System.nanoTime());
+    }
+}